@@ -0,0 +1,12 @@
+package benchmark;
+
+/* One measured operation. setup() runs before every call to run(), or every batch of
+ * calls (see Harness.run(String, Benchmark, int)), and is not timed. */
+public interface Benchmark {
+
+	default void setup() {
+	}
+
+	/* the result is consumed by the harness, so the JIT can't drop the work */
+	Object run();
+}
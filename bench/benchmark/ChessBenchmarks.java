@@ -0,0 +1,219 @@
+package benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import application.UI;
+import boardgame.Board;
+import boardgame.MoveList;
+import boardgame.Position;
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.PieceType;
+import chess.pieces.Bishop;
+import chess.pieces.King;
+import chess.pieces.Knight;
+import chess.pieces.Pawn;
+import chess.pieces.Queen;
+import chess.pieces.Rook;
+
+/* Benchmarks of the chess core hot paths, over opening, middlegame and endgame positions.
+ * usage: ChessBenchmarks [filter] [warmup iterations] [iterations] [ms per iteration] */
+public class ChessBenchmarks {
+
+	private static final int BATCH = 100; // calls per timed batch, for benchmarks without setup()
+
+	private static String filter;
+	private static Harness harness;
+
+	public static void main(String[] args) {
+		filter = args.length > 0 ? args[0] : "";
+		int warmup = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		long millis = args.length > 3 ? Long.parseLong(args[3]) : 1000;
+		harness = new Harness(warmup, iterations, millis);
+
+		Harness.printHeader();
+		for (GamePositions state : GamePositions.values()) {
+			matchBenchmarks(state);
+			pieceBenchmarks(state);
+			boardBenchmarks(state);
+			uiBenchmarks(state);
+		}
+		checkmateBenchmarks();
+	}
+
+	private static void matchBenchmarks(GamePositions state) {
+		run(state, "performChessMove", new Benchmark() {
+			ChessMatch match;
+			ChessPosition[] move;
+
+			@Override
+			public void setup() {
+				match = state.newMatch();
+				move = GamePositions.firstLegalMove(match);
+			}
+
+			@Override
+			public Object run() {
+				return match.performChessMove(move[0], move[1]);
+			}
+		});
+
+		ChessMatch match = state.newMatch();
+		runBatched(state, "isInCheck", () -> match.isInCheck(match.getCurrentPlayer()));
+		MoveList moves = new MoveList();
+		runBatched(state, "legalMoves", () -> {
+			match.legalMoves(moves);
+			return moves;
+		});
+		match.legalMoves(moves);
+		int first = moves.get(0);
+		runBatched(state, "makeMove+undoMove", () -> {
+			match.makeMove(first);
+			match.undoMove();
+			return match;
+		});
+		run(state, "new ChessMatch(fen)", () -> new ChessMatch(state.getFen()));
+		run(state, "toFen", match::toFen);
+	}
+
+	private static void pieceBenchmarks(GamePositions state) {
+		ChessMatch match = state.newMatch();
+		for (PieceType type : PieceType.values()) {
+			ChessPiece piece = find(match, type);
+			if (piece == null) {
+				continue;
+			}
+			runBatched(state, "possibleMoves " + type, piece::possibleMoves);
+		}
+	}
+
+	private static void boardBenchmarks(GamePositions state) {
+		ChessMatch match = state.newMatch();
+		Board board = new Board(8, 8, ChessPiece.KINDS);
+		ChessPiece[][] pieces = match.getPieces();
+		ChessPiece moving = null;
+		Position from = null;
+		for (int i = 0; i < 8; i++) {
+			for (int j = 0; j < 8; j++) {
+				if (pieces[i][j] != null) {
+					ChessPiece copy = copy(board, match, pieces[i][j]);
+					board.placePiece(copy, new Position(i, j));
+					moving = copy;
+					from = new Position(i, j);
+				}
+			}
+		}
+		ChessPiece piece = moving;
+		Position pos = from;
+		runBatched(state, "Board.removePiece+placePiece", () -> {
+			board.removePiece(pos);
+			board.placePiece(piece, pos);
+			return piece;
+		});
+	}
+
+	private static void uiBenchmarks(GamePositions state) {
+		ChessMatch match = state.newMatch();
+		PrintStream out = System.out;
+		PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+		// printing goes nowhere while measured, the results line goes to the console
+		run(state, "UI.printBoard", new Benchmark() {
+			@Override
+			public void setup() {
+				System.setOut(discard);
+			}
+
+			@Override
+			public Object run() {
+				UI.printBoard(match.getPieces());
+				System.setOut(out);
+				return match;
+			}
+		});
+	}
+
+	private static void checkmateBenchmarks() {
+		// testCheck runs inside performChessMove, and the snapshot it publishes asks for the result
+		run(null, "performChessMove mate (Qxf7#)", new Benchmark() {
+			ChessMatch match;
+
+			@Override
+			public void setup() {
+				match = play("e2e4", "e7e5", "f1c4", "b8c6", "d1h5", "g8f6");
+			}
+
+			@Override
+			public Object run() {
+				return match.performChessMove(new ChessPosition('h', 5), new ChessPosition('f', 7));
+			}
+		});
+		run(null, "performChessMove check (Qh5+)", new Benchmark() {
+			ChessMatch match;
+
+			@Override
+			public void setup() {
+				match = play("e2e4", "f7f6", "d2d4", "a7a6");
+			}
+
+			@Override
+			public Object run() {
+				return match.performChessMove(new ChessPosition('d', 1), new ChessPosition('h', 5));
+			}
+		});
+	}
+
+	private static void run(GamePositions state, String name, Benchmark benchmark) {
+		run(state, name, benchmark, 1);
+	}
+
+	/* for benchmarks that leave the state as they found it, so one setup serves many calls */
+	private static void runBatched(GamePositions state, String name, Benchmark benchmark) {
+		run(state, name, benchmark, BATCH);
+	}
+
+	private static void run(GamePositions state, String name, Benchmark benchmark, int batch) {
+		String fullName = state == null ? name : state.name().toLowerCase() + " " + name;
+		if (fullName.contains(filter)) {
+			harness.run(fullName, benchmark, batch);
+		}
+	}
+
+	private static ChessMatch play(String... moves) {
+		ChessMatch match = new ChessMatch();
+		for (String move : moves) {
+			match.performChessMove(GamePositions.position(move, 0), GamePositions.position(move, 2));
+		}
+		return match;
+	}
+
+	private static ChessPiece find(ChessMatch match, PieceType type) {
+		for (ChessPiece[] row : match.getPieces()) {
+			for (ChessPiece p : row) {
+				if (p != null && p.getType() == type && p.getColor() == match.getCurrentPlayer()) {
+					return p;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static ChessPiece copy(Board board, ChessMatch match, ChessPiece p) {
+		switch (p.getType()) {
+		case PAWN:
+			return new Pawn(board, p.getColor(), match);
+		case KNIGHT:
+			return new Knight(board, p.getColor());
+		case BISHOP:
+			return new Bishop(board, p.getColor());
+		case ROOK:
+			return new Rook(board, p.getColor());
+		case QUEEN:
+			return new Queen(board, p.getColor());
+		default:
+			return new King(board, p.getColor(), match);
+		}
+	}
+}
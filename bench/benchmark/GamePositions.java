@@ -0,0 +1,41 @@
+package benchmark;
+
+import boardgame.MoveList;
+import chess.ChessMatch;
+import chess.ChessMove;
+import chess.ChessPosition;
+
+/* The positions the benchmarks run on. */
+public enum GamePositions {
+	OPENING(ChessMatch.START_FEN),
+	/* Ruy Lopez, closed variation, after 11...Qc7 */
+	MIDDLEGAME("r1b2rk1/2q1bppp/p2p1n2/npp1p3/3PP3/2P2N1P/PPB2PP1/RNBQR1K1 w - - 1 12"),
+	/* ten pieces left, from a seeded random game */
+	ENDGAME("4k3/1Q2N3/1p5b/1P1P4/4p1K1/2P5/8/8 w - - 0 90");
+
+	private final String fen;
+
+	GamePositions(String fen) {
+		this.fen = fen;
+	}
+
+	public String getFen() {
+		return fen;
+	}
+
+	public ChessMatch newMatch() {
+		return new ChessMatch(fen);
+	}
+
+	/* the first legal move of the position, as {source, target} */
+	public static ChessPosition[] firstLegalMove(ChessMatch match) {
+		MoveList moves = new MoveList();
+		match.legalMoves(moves);
+		String move = ChessMove.toString(moves.get(0));
+		return new ChessPosition[] { position(move, 0), position(move, 2) };
+	}
+
+	public static ChessPosition position(String move, int index) {
+		return new ChessPosition(move.charAt(index), move.charAt(index + 1) - '0');
+	}
+}
@@ -0,0 +1,139 @@
+package benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/* Small JMH-like runner: warmup iterations, then measured iterations of a fixed
+ * duration. Calls are timed in batches after one setup(), so setup() stays out of the
+ * numbers; a batch of one suits benchmarks whose setup() must run before every call, larger
+ * ones spread the timer overhead of nanoTime() over calls of a few dozen nanoseconds.
+ * "GC profiling": bytes allocated per call (HotSpot thread allocation counter) and
+ * the collections that happened while measuring. */
+public class Harness {
+
+	private final int warmupIterations;
+	private final int iterations;
+	private final long iterationNanos;
+	private final com.sun.management.ThreadMXBean threads;
+	private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+	private final long allocationOverhead; // bytes the allocation counter itself reports
+	/* results are compared with an object read from a volatile field, as JMH's Blackhole
+	 * does, so the JIT has to compute them; the count is published once per iteration */
+	private volatile Object trap = new Object();
+	private int trapped;
+	private volatile int published;
+
+	public Harness(int warmupIterations, int iterations, long iterationMillis) {
+		this.warmupIterations = warmupIterations;
+		this.iterations = iterations;
+		this.iterationNanos = iterationMillis * 1_000_000L;
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+			threads = (com.sun.management.ThreadMXBean) bean;
+			threads.setThreadAllocatedMemoryEnabled(true);
+		} else {
+			threads = null;
+		}
+		allocationOverhead = measureAllocationOverhead();
+	}
+
+	public static void printHeader() {
+		System.out.printf("%-44s %12s %10s %12s %6s %8s%n", "Benchmark", "ns/op", "error", "B/op", "gc", "gc ms");
+	}
+
+	public void run(String name, Benchmark benchmark) {
+		run(name, benchmark, 1);
+	}
+
+	/* batch: calls timed together after one setup(), which they must not depend on */
+	public void run(String name, Benchmark benchmark, int batch) {
+		for (int i = 0; i < warmupIterations; i++) {
+			iteration(benchmark, batch);
+		}
+
+		long gcCount = gcCount();
+		long gcMillis = gcMillis();
+		double[] nsPerOp = new double[iterations];
+		long ops = 0;
+		long bytes = 0;
+		for (int i = 0; i < iterations; i++) {
+			long[] result = iteration(benchmark, batch);
+			nsPerOp[i] = (double) result[0] / result[1];
+			ops += result[1];
+			bytes += result[2];
+		}
+		gcCount = gcCount() - gcCount;
+		gcMillis = gcMillis() - gcMillis;
+
+		double mean = 0;
+		for (double v : nsPerOp) {
+			mean += v;
+		}
+		mean /= iterations;
+		double variance = 0;
+		for (double v : nsPerOp) {
+			variance += (v - mean) * (v - mean);
+		}
+		double error = iterations > 1 ? Math.sqrt(variance / (iterations - 1)) : 0;
+		String bytesPerOp = threads == null ? "n/a" : String.format("%.1f", Math.max(0.0, (double) bytes / ops));
+		System.out.printf("%-44s %12.1f %10.1f %12s %6d %8d%n", name, mean, error, bytesPerOp, gcCount, gcMillis);
+	}
+
+	/* returns { timed nanoseconds, calls, allocated bytes } */
+	private long[] iteration(Benchmark benchmark, int batch) {
+		long timed = 0;
+		long calls = 0;
+		long bytes = 0;
+		long deadline = System.nanoTime() + iterationNanos;
+		while (System.nanoTime() < deadline) {
+			benchmark.setup();
+			long allocated = allocatedBytes();
+			long start = System.nanoTime();
+			for (int i = 0; i < batch; i++) {
+				consume(benchmark.run());
+			}
+			timed += System.nanoTime() - start;
+			bytes += allocatedBytes() - allocated - allocationOverhead;
+			calls += batch;
+		}
+		published = trapped;
+		return new long[] { timed, calls, bytes };
+	}
+
+	private void consume(Object result) {
+		if (result == trap) {
+			trapped++; // never happens, but the JIT cannot know
+		}
+	}
+
+	private long allocatedBytes() {
+		return threads == null ? 0 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private long measureAllocationOverhead() {
+		long min = Long.MAX_VALUE;
+		for (int i = 0; i < 10_000; i++) {
+			long a = allocatedBytes();
+			min = Math.min(min, allocatedBytes() - a);
+		}
+		return min;
+	}
+
+	private long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : collectors) {
+			count += Math.max(0, gc.getCollectionCount());
+		}
+		return count;
+	}
+
+	private long gcMillis() {
+		long millis = 0;
+		for (GarbageCollectorMXBean gc : collectors) {
+			millis += Math.max(0, gc.getCollectionTime());
+		}
+		return millis;
+	}
+}
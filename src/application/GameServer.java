@@ -0,0 +1,193 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import boardgame.MoveList;
+import chess.ChessMatch;
+import chess.ChessMove;
+import chess.GameResult;
+import chess.io.San;
+
+/* Hosts many matches over a line protocol on TCP, one thread per connection. A
+ * connection can play any number of matches, and a match can be played from several
+ * connections; matches are MatchActors, so each one is private to its commands and the
+ * server holds no lock.
+ *
+ *   NEW                 -> OK <id>
+ *   MOVE <id> <move>    -> OK <FEN> [CHECK|CHECKMATE|STALEMATE|DRAW]   move in SAN or e2e4 / e7e8q
+ *   FEN <id>            -> OK <FEN>
+ *   MOVES <id>          -> OK <moves in coordinate notation>
+ *   CLOSE <id>          -> OK
+ *   QUIT
+ * Errors answer ERR <message>. The matches a connection created are closed with it. */
+public class GameServer implements Closeable {
+
+	private final ServerSocket socket;
+	private final ExecutorService threads = newThreadPerTaskExecutor();
+	private final ConcurrentHashMap<Long, MatchActor> matches = new ConcurrentHashMap<>();
+	private final AtomicLong ids = new AtomicLong();
+
+	/* port 0 picks a free one, see getPort() */
+	public GameServer(int port) throws IOException {
+		socket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+	}
+
+	public GameServer(ServerSocket socket) {
+		this.socket = socket;
+	}
+
+	public int getPort() {
+		return socket.getLocalPort();
+	}
+
+	public int getMatches() {
+		return matches.size();
+	}
+
+	/* accepts connections until close() */
+	public void serve() throws IOException {
+		try {
+			while (true) {
+				Socket connection = socket.accept();
+				threads.execute(() -> handle(connection));
+			}
+		} catch (SocketException e) {
+			if (!socket.isClosed()) {
+				throw e;
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		socket.close();
+		threads.shutdownNow();
+	}
+
+	private void handle(Socket connection) {
+		List<Long> created = new ArrayList<>();
+		try (Socket s = connection;
+				BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII));
+				PrintWriter out = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.US_ASCII))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] words = line.trim().split("\\s+");
+				if (words[0].equalsIgnoreCase("QUIT")) {
+					break;
+				}
+				String reply;
+				try {
+					reply = "OK " + execute(words, created);
+				} catch (CompletionException e) {
+					reply = "ERR " + e.getCause().getMessage();
+				} catch (RuntimeException e) {
+					reply = "ERR " + e.getMessage();
+				}
+				out.print(reply.trim());
+				out.print('\n');
+				out.flush();
+			}
+		} catch (IOException e) {
+			// the client went away; its matches are closed below
+		} finally {
+			for (Long id : created) {
+				matches.remove(id);
+			}
+		}
+	}
+
+	private String execute(String[] words, List<Long> created) {
+		String command = words[0].toUpperCase();
+		if (command.equals("NEW")) {
+			long id = ids.incrementAndGet();
+			matches.put(id, new MatchActor(id, threads));
+			created.add(id);
+			return Long.toString(id);
+		}
+		if (words.length < 2) {
+			throw new IllegalArgumentException("Missing match id.");
+		}
+		MatchActor actor = matches.get(parseId(words[1]));
+		if (actor == null) {
+			throw new IllegalArgumentException("No match " + words[1]);
+		}
+		switch (command) {
+		case "MOVE":
+			if (words.length < 3) {
+				throw new IllegalArgumentException("Missing move.");
+			}
+			return actor.submit(match -> move(match, words[2])).join();
+		case "FEN":
+			return actor.submit(ChessMatch::toFen).join();
+		case "MOVES":
+			return actor.submit(GameServer::moves).join();
+		case "CLOSE":
+			matches.remove(actor.getId());
+			created.remove((Long) actor.getId());
+			return "";
+		default:
+			throw new IllegalArgumentException("Unknown command " + words[0]);
+		}
+	}
+
+	private static String move(ChessMatch match, String move) {
+		if (match.getResult() != GameResult.ONGOING) {
+			throw new IllegalArgumentException("The game is over.");
+		}
+		match.makeMove(San.resolve(match, move, new MoveList()));
+		String fen = match.snapshot().toFen(); // published for readers of the match
+		GameResult result = match.getResult();
+		if (result != GameResult.ONGOING) {
+			return fen + " " + result;
+		}
+		return match.getCheck() ? fen + " CHECK" : fen;
+	}
+
+	private static String moves(ChessMatch match) {
+		MoveList moves = new MoveList();
+		match.legalMoves(moves);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < moves.size(); i++) {
+			sb.append(ChessMove.toString(moves.get(i))).append(' ');
+		}
+		return sb.toString();
+	}
+
+	private static long parseId(String id) {
+		try {
+			return Long.parseLong(id);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid match id " + id);
+		}
+	}
+
+	/* a virtual thread per task where the JVM has them (Java 21), a cached pool otherwise */
+	private static ExecutorService newThreadPerTaskExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(r -> {
+				Thread t = new Thread(r, "game-server");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package application;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import chess.ChessMatch;
+
+/* One match of the server and the commands sent to it. Commands queue up without
+ * blocking the sender and run one at a time on some thread of the executor, so the match
+ * is only ever touched by one thread and needs no lock; the CAS on scheduled hands it
+ * over from one thread to the next. */
+class MatchActor {
+
+	private final long id;
+	private final ChessMatch match = new ChessMatch();
+	private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private final Executor executor;
+
+	MatchActor(long id, Executor executor) {
+		this.id = id;
+		this.executor = executor;
+	}
+
+	long getId() {
+		return id;
+	}
+
+	/* runs the command on the match after the ones already sent */
+	<T> CompletableFuture<T> submit(Function<ChessMatch, T> command) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		mailbox.add(() -> {
+			try {
+				result.complete(command.apply(match));
+			} catch (RuntimeException e) {
+				result.completeExceptionally(e);
+			} catch (Error e) {
+				result.completeExceptionally(e); // the sender must not wait forever
+				throw e;
+			}
+		});
+		schedule();
+		return result;
+	}
+
+	private void schedule() {
+		if (scheduled.compareAndSet(false, true)) {
+			executor.execute(this::drain);
+		}
+	}
+
+	private void drain() {
+		try {
+			Runnable command;
+			while ((command = mailbox.poll()) != null) {
+				command.run();
+			}
+		} finally {
+			// also after an Error, or the commands sent later would never run
+			scheduled.set(false);
+			if (!mailbox.isEmpty()) {
+				schedule(); // sent after the poll came back empty
+			}
+		}
+	}
+}
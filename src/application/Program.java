@@ -1,27 +1,87 @@
 package application;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.InputMismatchException;
 import java.util.List;
 import java.util.Scanner;
 
+import boardgame.MoveList;
 import chess.ChessMatch;
+import chess.ChessMove;
 import chess.ChessPiece;
 import chess.ChessPosition;
+import chess.Color;
+import chess.GameResult;
+import chess.PieceType;
+import chess.engine.Engine;
+import chess.engine.OpeningBook;
+import chess.engine.ReplacementPolicy;
+import chess.engine.Tablebase;
+import chess.engine.TranspositionTable;
 import chess.exceptions.ChessException;
 
 public class Program {
 
-	public static void main(String[] args) {
+	/* usage: Program [white|black [ms per move [opening book [tablebase directory]]]] - the color the computer plays, if any
+	 *        Program server [port] - hosts matches for clients, see GameServer */
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0 && args[0].equalsIgnoreCase("server")) {
+			try (GameServer server = new GameServer(args.length > 1 ? Integer.parseInt(args[1]) : 7777)) {
+				System.out.println("Serving matches on port " + server.getPort());
+				server.serve();
+			}
+			return;
+		}
 		Scanner sc = new Scanner(System.in);
 		ChessMatch chessMatch = new ChessMatch();
 		List<ChessPiece> captureds = new ArrayList<ChessPiece>();
 
-		while (!chessMatch.getCheckMate()) {
+		Color engineColor = null;
+		if (args.length > 0) {
+			try {
+				engineColor = Color.valueOf(args[0].toUpperCase());
+			} catch (IllegalArgumentException e) {
+				System.out.println("usage: Program [white|black [ms per move [opening book [tablebase directory]]]]");
+				System.out.println("       Program server [port]");
+				return;
+			}
+		}
+		Engine engine = null;
+		if (engineColor != null) {
+			engine = new Engine(new TranspositionTable(64, ReplacementPolicy.DEPTH_PREFERRED));
+			engine.setTimeLimit(args.length > 1 ? Long.parseLong(args[1]) : 1000);
+			if (args.length > 2 && !args[2].equals("-")) {
+				engine.setBook(new OpeningBook(Paths.get(args[2])));
+			}
+			if (args.length > 3) {
+				engine.setTablebase(new Tablebase(Paths.get(args[3])));
+			}
+		}
+
+		while (chessMatch.getResult() == GameResult.ONGOING) {
 			try {
 
 				UI.clearScreen();
 				UI.printMatch(chessMatch, captureds);
+				if (chessMatch.getCurrentPlayer() == engineColor) {
+					int move = engine.bestMove(chessMatch);
+					if (move == 0) {
+						break; // no legal move left
+					}
+					ChessPiece capturedPiece = chessMatch.performChessMove(position(MoveList.from(move)),
+							position(MoveList.to(move)));
+					if (capturedPiece != null) {
+						captureds.add(capturedPiece);
+					}
+					PieceType promotion = ChessMove.promotion(move);
+					if (chessMatch.getPromoted() != null && promotion != null) {
+						chessMatch.replacePromotedPiece(
+								promotion == PieceType.KNIGHT ? "N" : promotion.name().substring(0, 1));
+					}
+					continue;
+				}
 				System.out.println("Source: ");
 				ChessPosition source = UI.readChessPosition(sc);
 
@@ -62,4 +122,9 @@ public class Program {
 
 	}
 
+	private static ChessPosition position(int square) {
+		String name = ChessMove.squareName(square);
+		return new ChessPosition(name.charAt(0), name.charAt(1) - '0');
+	}
+
 }
@@ -55,15 +55,22 @@ public class UI {
 		printBoard(match.getPieces());
 		printCapturedPieces(caps);
 		System.out.println("Turn: " + match.getTurn());
-		if (!match.getCheckMate()) {
-
+		switch (match.getResult()) {
+		case CHECKMATE:
+			System.out.println("CHECKMATE!!");
+			System.out.println("Winner: " + (match.getCurrentPlayer() == Color.WHITE ? Color.BLACK : Color.WHITE));
+			break;
+		case STALEMATE:
+			System.out.println("STALEMATE!");
+			break;
+		case DRAW:
+			System.out.println("DRAW!");
+			break;
+		default:
 			System.out.println("Waiting player " + match.getCurrentPlayer());
 			if (match.getCheck()) {
 				System.out.println("CHECK!");
 			}
-		}else {
-			System.out.println("CHECKMATE!!");			
-			System.out.println("Winner: " + match.getCurrentPlayer());
 		}
 	}
 
@@ -5,16 +5,35 @@ import boardgame.exceptions.BoardException;
 public class Board {
 	private int rows;
 	private int columns;
-	private Piece[][] pieces;
-	
+	private Piece[] pieces; // indexed by square: row * columns + column
+	private Position[] positions; // one shared, read-only instance per square
+
+	/* bitboard mode: one occupancy word per piece kind (boards up to 64 squares) */
+	private long[] bitboards;
+	private long occupied;
+
 	/*** Constructors ***/
 	public Board(int rows, int columns) {
+		this(rows, columns, 0);
+	}
+
+	public Board(int rows, int columns, int kinds) {
 		if (rows < 1 || columns < 1) {
 			throw new BoardException("Error creating board: At least one row and one column are necessary.");
 		}
+		if (kinds > 0 && rows * columns > 64) {
+			throw new BoardException("Error creating board: Bitboard mode supports at most 64 squares.");
+		}
 		this.rows = rows;
 		this.columns = columns;
-		pieces = new Piece[rows][columns];
+		pieces = new Piece[rows * columns];
+		positions = new Position[rows * columns];
+		for (int sq = 0; sq < positions.length; sq++) {
+			positions[sq] = new SquarePosition(sq / columns, sq % columns);
+		}
+		if (kinds > 0) {
+			bitboards = new long[kinds];
+		}
 	}
 
 	/*** Getters ***/
@@ -25,34 +44,75 @@ public class Board {
 		return columns;
 	}
 
+	public boolean isBitboardMode() {
+		return bitboards != null;
+	}
+	public long getOccupied() {
+		checkBitboardMode();
+		return occupied;
+	}
+	public long getBitboard(int kind) {
+		checkBitboardMode();
+		return bitboards[kind];
+	}
+
 	/*** Functions ***/
+	public int square(int r, int c) {
+		return r * columns + c;
+	}
+	public int square(Position pos) {
+		return square(pos.getRow(), pos.getColumn());
+	}
+
+	/* shared position of a square, pieces on the board point to these; it cannot be changed */
+	public Position position(int square) {
+		return positions[square];
+	}
+
 	public Piece piece(int r, int c) {
 		if(!positionExists(r, c)) {
 			throw new BoardException(String.format("Position (%d%d) not on the board", r,c));
 		}
-		return pieces[r][c];
+		return pieces[square(r, c)];
 	}
 	public Piece piece(Position pos) {
-		return pieces[pos.getRow()][pos.getColumn()];
+		if(!positionExists(pos)) {
+			throw new BoardException("Position " + pos +" not on the board");
+		}
+		return pieces[square(pos)];
+	}
+	/* unchecked, for the move generation hot paths: the square must be on the board */
+	public Piece piece(int square) {
+		return pieces[square];
 	}
 
 	public void placePiece(Piece piece, Position pos) {
 		if(thereIsAPiece(pos)) {
 			throw new BoardException("These is already a piece on the position " + pos);
 		}
-		pieces[pos.getRow()][pos.getColumn()] = piece;
-		piece.position = pos;
+		int sq = square(pos);
+		pieces[sq] = piece;
+		piece.position = positions[sq];
+		if (bitboards != null) {
+			bitboards[piece.getKind()] |= 1L << sq;
+			occupied |= 1L << sq;
+		}
 	}
 	public Piece removePiece(Position pos) {
 		if(!positionExists(pos)) {
 			throw new BoardException("Position " + pos +" not on the board");
 		}
-		if(piece(pos) == null) {
+		int sq = square(pos);
+		Piece temp = pieces[sq];
+		if(temp == null) {
 			return null;
 		}
-		Piece temp =  piece(pos);
 		temp.position=null; //piece off the board
-		pieces[pos.getRow()][pos.getColumn()] = null; // empty position??
+		pieces[sq] = null;
+		if (bitboards != null) {
+			bitboards[temp.getKind()] &= ~(1L << sq);
+			occupied &= ~(1L << sq);
+		}
 		return temp;
 	}
 
@@ -67,7 +127,41 @@ public class Board {
 		if(!positionExists(pos)) {
 			throw new BoardException("Position " + pos +" not on the board");
 		}
-		return piece(pos) != null;
+		if (bitboards != null) {
+			return (occupied & 1L << square(pos)) != 0;
+		}
+		return pieces[square(pos)] != null;
 	}
 
+	private void checkBitboardMode() {
+		if (bitboards == null) {
+			throw new BoardException("Board is not in bitboard mode.");
+		}
+	}
+
+	/* the positions handed out by position(int): pieces keep them, so a caller moving one
+	 * would move a square of the board */
+	private static class SquarePosition extends Position {
+
+		SquarePosition(int row, int column) {
+			super(row, column);
+		}
+
+		@Override
+		public void setRow(Integer row) {
+			throw readOnly();
+		}
+		@Override
+		public void setColumn(Integer column) {
+			throw readOnly();
+		}
+		@Override
+		public void setValues(int r, int c) {
+			throw readOnly();
+		}
+
+		private static BoardException readOnly() {
+			return new BoardException("The position of a board square cannot be changed.");
+		}
+	}
 }
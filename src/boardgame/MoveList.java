@@ -0,0 +1,65 @@
+package boardgame;
+
+/* Reusable buffer of moves encoded as ints: source square, target square and flags.
+ * Squares are Board.square() indexes. */
+public class MoveList {
+	private int[] moves;
+	private int size;
+
+	public MoveList() {
+		this(256);
+	}
+
+	public MoveList(int capacity) {
+		moves = new int[capacity];
+	}
+
+	/*** Encoding ***/
+	public static int encode(int from, int to, int flags) {
+		return from | to << 8 | flags << 16;
+	}
+	public static int from(int move) {
+		return move & 0xFF;
+	}
+	public static int to(int move) {
+		return move >>> 8 & 0xFF;
+	}
+	public static int flags(int move) {
+		return move >>> 16;
+	}
+
+	/*** Functions ***/
+	public int size() {
+		return size;
+	}
+	public int get(int i) {
+		return moves[i];
+	}
+	public void set(int i, int move) {
+		moves[i] = move;
+	}
+
+	public void add(int from, int to, int flags) {
+		add(encode(from, to, flags));
+	}
+	public void add(int move) {
+		if (size == moves.length) {
+			int[] bigger = new int[moves.length * 2];
+			System.arraycopy(moves, 0, bigger, 0, size);
+			moves = bigger;
+		}
+		moves[size++] = move;
+	}
+
+	/* keeps the first size moves */
+	public void truncate(int size) {
+		if (size < 0 || size > this.size) {
+			throw new IndexOutOfBoundsException("Invalid size: " + size);
+		}
+		this.size = size;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+}
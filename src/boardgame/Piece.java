@@ -11,9 +11,28 @@ public abstract class Piece {
 	protected Board getBoard() {
 		return board;
 	}
+	public boolean isOnBoard() {
+		return position != null;
+	}
 	
+	/* bitboard index used by boards in bitboard mode */
+	public abstract int getKind();
+
 	public abstract boolean[][] possibleMoves();
-		
+
+	/* writes the moves into a caller supplied list instead of a new matrix */
+	public void possibleMoves(MoveList moves) {
+		boolean[][] mat = possibleMoves();
+		int from = board.square(position);
+		for (int i = 0; i < mat.length; i++) {
+			for (int j = 0; j < mat[i].length; j++) {
+				if (mat[i][j]) {
+					moves.add(from, board.square(i, j), 0);
+				}
+			}
+		}
+	}
+
 	/*hook method*/
 	public boolean possibleMove(Position pos){
 		return possibleMoves()[pos.getRow()][pos.getColumn()];
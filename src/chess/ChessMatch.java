@@ -1,10 +1,11 @@
 package chess;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import boardgame.Board;
+import boardgame.MoveList;
 import boardgame.Piece;
 import boardgame.Position;
 import chess.exceptions.ChessException;
@@ -16,23 +17,103 @@ import chess.pieces.Queen;
 import chess.pieces.Rook;
 
 public class ChessMatch {
+	/* castling rights, as bits of getCastlingRights() */
+	public static final int WHITE_SHORT = 1;
+	public static final int WHITE_LONG = 2;
+	public static final int BLACK_SHORT = 4;
+	public static final int BLACK_LONG = 8;
+
+	/* castling rights kept by a move from or to each square */
+	private static final int[] CASTLING_KEPT = new int[64];
+	static {
+		Arrays.fill(CASTLING_KEPT, WHITE_SHORT | WHITE_LONG | BLACK_SHORT | BLACK_LONG);
+		CASTLING_KEPT[60] &= ~(WHITE_SHORT | WHITE_LONG);
+		CASTLING_KEPT[63] &= ~WHITE_SHORT;
+		CASTLING_KEPT[56] &= ~WHITE_LONG;
+		CASTLING_KEPT[4] &= ~(BLACK_SHORT | BLACK_LONG);
+		CASTLING_KEPT[7] &= ~BLACK_SHORT;
+		CASTLING_KEPT[0] &= ~BLACK_LONG;
+	}
+	private static final long LIGHT_SQUARES = 0xAA55AA55AA55AA55L; // a8, c8, ... b7, d7, ...
+
+	public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
 	private int turn;
 	private Color currentPlayer;
 	private Board board;
 	private boolean check; // booleans are false by default
-	private boolean checkMate;
+	private GameResult result; // worked out when first asked for, null until then
 	private ChessPiece enPassantVulnerable;
 	private ChessPiece promoted;
-	private boolean castlingNotAllowed;
-
-	private List<Piece> piecesOnBoard = new ArrayList<>();
+	private long positionKey; // Zobrist key, kept up to date by every change below
+	private long enPassantKey; // en passant part of positionKey
+	private int halfmoveClock; // plies since the last capture or pawn move
+	private int castlingRights; // bits WHITE_SHORT..BLACK_LONG
+	private int middlegame; // PieceSquare sums, white minus black
+	private int endgame;
+	private int phase;
+
+	private PieceSet[] piecesOnBoard = { new PieceSet(), new PieceSet() }; // indexed by Color.ordinal()
 	private List<Piece> piecesCaptured = new ArrayList<>();
+	private MoveGenerator generator = new MoveGenerator(this);
+	private MoveList legalMoves = new MoveList(); // reused to validate moves
+	private UndoInfo[] undoStack = new UndoInfo[0]; // moves played through makeMove(int)
+	private int undoSize;
+	private long[] earlierKeys = new long[0]; // positions before a copy was made, oldest first
+	private volatile ChessSnapshot snapshot; // published for other threads, see getSnapshot()
 
 	public ChessMatch() {
-		board = new Board(8, 8);
-		turn = 1;
-		currentPlayer = Color.WHITE;
-		initialSetup();
+		this(START_FEN);
+	}
+
+	/* the position of a FEN record: pieces, side to move, castling rights, en passant
+	 * square and clocks. Castling rights become the move counts of the kings and rooks,
+	 * and a pawn counts as unmoved only on its starting row. */
+	public ChessMatch(String fen) {
+		board = new Board(8, 8, ChessPiece.KINDS);
+		loadFen(fen);
+	}
+
+	/* independent copy of the position, e.g. for another thread. The moves are not copied,
+	 * only the keys of the positions back to the last capture or pawn move, so repetitions
+	 * of positions played before the copy still count. */
+	public ChessMatch(ChessMatch other) {
+		board = new Board(8, 8, ChessPiece.KINDS);
+		turn = other.turn;
+		halfmoveClock = other.halfmoveClock;
+		currentPlayer = other.currentPlayer;
+		check = other.check;
+		result = other.result;
+		for (int sq = 0; sq < 64; sq++) {
+			ChessPiece p = (ChessPiece) other.board.piece(sq);
+			if (p != null) {
+				ChessPiece copy = newPiece(p.getType(), p.getColor());
+				copy.setMoveCount(p.getMoveCount());
+				placePiece(copy, board.position(sq));
+				pieces(copy.getColor()).add(copy);
+			}
+		}
+		for (Piece p : other.piecesCaptured) {
+			ChessPiece captured = (ChessPiece) p;
+			piecesCaptured.add(newPiece(captured.getType(), captured.getColor()));
+		}
+		int keys = Math.min(halfmoveClock, other.undoSize + other.earlierKeys.length);
+		earlierKeys = new long[keys];
+		for (int i = 0; i < keys; i++) {
+			earlierKeys[i] = other.historyKey(other.undoSize - keys + i);
+		}
+		if (other.promoted != null && other.promoted.isOnBoard()) {
+			promoted = (ChessPiece) board.piece(other.promoted.getSquare());
+		}
+		setCastlingRights(deriveCastlingRights());
+		if (currentPlayer == Color.BLACK) {
+			positionKey ^= Zobrist.side();
+		}
+		ChessPiece vulnerable = other.enPassantVulnerable;
+		if (vulnerable != null && vulnerable.isOnBoard()) {
+			setEnPassantVulnerable((ChessPiece) board.piece(vulnerable.getSquare()));
+		}
+		snapshot();
 	}
 
 	/***** GETTERS *****/
@@ -49,7 +130,21 @@ public class ChessMatch {
 	}
 
 	public boolean getCheckMate() {
-		return check;
+		return getResult() == GameResult.CHECKMATE;
+	}
+
+	/* whether the side to move is mated, stalemated, drawn or still playing. The search
+	 * for a legal move stops at the first one found, and the result is kept until the
+	 * position changes; taking a move back brings back the result it had. */
+	public GameResult getResult() {
+		if (result == null) {
+			if (!generator.hasLegalMove(currentPlayer)) {
+				result = check ? GameResult.CHECKMATE : GameResult.STALEMATE;
+			} else {
+				result = isDraw() ? GameResult.DRAW : GameResult.ONGOING;
+			}
+		}
+		return result;
 	}
 
 	public ChessPiece getEnPassantVulnerable() {
@@ -60,6 +155,108 @@ public class ChessMatch {
 		return promoted;
 	}
 
+	/* squares of the pieces of a color and type, as Board.square() bits */
+	public long getBitboard(Color color, PieceType type) {
+		return bitboard(color, type);
+	}
+	/* squares of all the pieces */
+	public long getOccupied() {
+		return board.getOccupied();
+	}
+
+	public ChessPiece getPiece(int square) {
+		return (ChessPiece) board.piece(square);
+	}
+
+	/* identifies the position: pieces, side to move, castling rights and en passant file */
+	public long getPositionKey() {
+		return positionKey;
+	}
+
+	/* sums of PieceSquare values of the pieces on the board, white minus black */
+	public int getMiddlegameScore() {
+		return middlegame;
+	}
+	public int getEndgameScore() {
+		return endgame;
+	}
+	/* PieceSquare.phase() of the pieces on the board */
+	public int getPhase() {
+		return phase;
+	}
+
+	public int getHalfmoveClock() {
+		return halfmoveClock;
+	}
+
+	/* the position as of the last move played with performChessMove or taken back past it,
+	 * or the last snapshot(); safe to read from any thread while the match goes on */
+	public ChessSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	public int getCastlingRights() {
+		return castlingRights;
+	}
+
+	/*** Draws ***/
+	public boolean isDraw() {
+		return isFiftyMoveRule() || isInsufficientMaterial() || isThreefoldRepetition();
+	}
+
+	/* a hundred plies without a capture or a pawn move */
+	public boolean isFiftyMoveRule() {
+		return halfmoveClock >= 100;
+	}
+
+	/* the position has been on the board twice before */
+	public boolean isThreefoldRepetition() {
+		return getRepetitions() >= 2;
+	}
+
+	/* times the position occurred before, looking back through the history keys only
+	 * as far as the last capture or pawn move, and only at the same side to move */
+	public int getRepetitions() {
+		int count = 0;
+		int oldest = Math.max(-earlierKeys.length, undoSize - halfmoveClock);
+		for (int i = undoSize - 2; i >= oldest; i -= 2) {
+			if (historyKey(i) == positionKey) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/* key of the position the move of a ply was played in; negative plies are the
+	 * positions before the match was copied */
+	private long historyKey(int ply) {
+		return ply >= 0 ? undoStack[ply].key : earlierKeys[earlierKeys.length + ply];
+	}
+
+	/* no sequence of moves can mate: kings alone, or with a single knight or bishop, or
+	 * with bishops all on squares of one color. Read from the piece bitboards. */
+	public boolean isInsufficientMaterial() {
+		long heavy = 0L;
+		long knights = 0L;
+		long bishops = 0L;
+		for (Color color : Color.values()) {
+			heavy |= bitboard(color, PieceType.PAWN) | bitboard(color, PieceType.ROOK) | bitboard(color, PieceType.QUEEN);
+			knights |= bitboard(color, PieceType.KNIGHT);
+			bishops |= bitboard(color, PieceType.BISHOP);
+		}
+		if (heavy != 0) {
+			return false;
+		}
+		if (Long.bitCount(knights | bishops) <= 1) {
+			return true;
+		}
+		return knights == 0 && ((bishops & LIGHT_SQUARES) == 0 || (bishops & ~LIGHT_SQUARES) == 0);
+	}
+
+	Board getBoard() {
+		return board;
+	}
+
 	/***** FUNCTIONS *****/
 	public ChessPiece[][] getPieces() {
 		ChessPiece[][] mat = new ChessPiece[board.getRows()][board.getColumns()];
@@ -71,6 +268,134 @@ public class ChessMatch {
 		return mat;
 	}
 
+	/* copies the position and publishes the copy to getSnapshot(). Moves played with
+	 * makeMove(int) are not published on their own: engines walking the tree call this
+	 * when they want to show a position. Only the thread playing the match may call it. */
+	public ChessSnapshot snapshot() {
+		ChessSnapshot s = capture();
+		snapshot = s;
+		return s;
+	}
+
+	/* fills the list with the legal moves of the current player */
+	public void legalMoves(MoveList moves) {
+		moves.clear();
+		generator.generate(currentPlayer, moves);
+	}
+
+	/* fills the list with the moves the current player's pieces report through
+	 * Piece.possibleMoves(MoveList); some may leave the own king in check */
+	public void pseudoLegalMoves(MoveList moves) {
+		moves.clear();
+		PieceSet own = pieces(currentPlayer);
+		for (int i = 0; i < own.size(); i++) {
+			ChessPiece p = own.get(i);
+			int start = moves.size();
+			p.possibleMoves(moves);
+			if (p.getType() == PieceType.PAWN) {
+				int end = moves.size();
+				for (int j = start; j < end; j++) {
+					int move = moves.get(j);
+					int to = MoveList.to(move);
+					if (to < 8 || to >= 56) { // one move per promotion piece
+						int from = MoveList.from(move);
+						moves.set(j, MoveList.encode(from, to, ChessMove.promotionFlag(PieceType.QUEEN)));
+						moves.add(from, to, ChessMove.promotionFlag(PieceType.ROOK));
+						moves.add(from, to, ChessMove.promotionFlag(PieceType.BISHOP));
+						moves.add(from, to, ChessMove.promotionFlag(PieceType.KNIGHT));
+					}
+				}
+			}
+		}
+	}
+
+	public boolean isInCheck(Color color) {
+		return testCheck(color);
+	}
+
+	/* plays an encoded move without validating it, for engines walking the game tree;
+	 * undoMove() takes it back. A pawn reaching the last row becomes the piece in the
+	 * move's promotion flag, or a queen, and getPromoted() returns it until the next move. */
+	public void makeMove(int move) {
+		int from = MoveList.from(move);
+		int to = MoveList.to(move);
+		ChessPiece moved = (ChessPiece) board.piece(from);
+		move = withFlags(move, moved);
+
+		UndoInfo u = pushUndo();
+		u.move = move;
+		u.key = positionKey;
+		u.enPassantVulnerable = enPassantVulnerable;
+		u.enPassantKey = enPassantKey;
+		u.castlingRights = castlingRights;
+		u.halfmoveClock = halfmoveClock;
+		u.check = check;
+		u.result = result;
+		u.promoted = promoted;
+		u.captured = applyMove(move, moved);
+		updateHalfmoveClock(moved, u.captured);
+
+		u.promotedPawn = null;
+		promoted = null;
+		if (moved.getType() == PieceType.PAWN && (to < 8 || to >= 56)) {
+			PieceType type = ChessMove.promotion(move);
+			u.promotedPawn = moved;
+			promoted = newPiece(type == null ? PieceType.QUEEN : type, moved.getColor());
+			replacePiece(board.position(to), promoted);
+		}
+
+		nextTurn();
+		setEnPassantVulnerable(ChessMove.is(move, ChessMove.DOUBLE_PUSH) ? moved : null);
+		check = testCheck(currentPlayer);
+		result = null;
+	}
+
+	/* takes back the last move, played with makeMove(int) or performChessMove, from its
+	 * history record; any number of moves can be taken back. If the position taken back
+	 * was the published one, the position before it is published instead. */
+	public void undoMove() {
+		if (undoSize == 0) {
+			throw new IllegalStateException("There is no move to undo.");
+		}
+		ChessSnapshot shown = snapshot;
+		boolean republish = shown != null && shown.getTurn() == turn && shown.getPositionKey() == positionKey;
+		UndoInfo u = undoStack[--undoSize];
+		int move = u.move;
+
+		previousTurn();
+		positionKey ^= enPassantKey ^ u.enPassantKey;
+		enPassantKey = u.enPassantKey;
+		enPassantVulnerable = u.enPassantVulnerable;
+		if (u.promotedPawn != null) {
+			replacePiece(board.position(MoveList.to(move)), u.promotedPawn);
+		}
+		revertMove(move, u.captured);
+		setCastlingRights(u.castlingRights);
+		halfmoveClock = u.halfmoveClock;
+		check = u.check;
+		result = u.result;
+		promoted = u.promoted;
+
+		u.captured = null;
+		u.promotedPawn = null;
+		u.enPassantVulnerable = null;
+		u.promoted = null;
+		if (republish) {
+			snapshot();
+		}
+	}
+
+	/* moves played so far, oldest first, as encoded for makeMove(int) */
+	public int getHistorySize() {
+		return undoSize;
+	}
+	public int getHistoryMove(int ply) {
+		if (ply < 0 || ply >= undoSize) {
+			throw new IndexOutOfBoundsException("Invalid ply: " + ply);
+		}
+		return undoStack[ply].move;
+	}
+
 	public boolean[][] possibleMoves(ChessPosition srcPos) {
 		Position pos = srcPos.toPosition();
 		validateSourcePosition(pos);
@@ -82,48 +407,16 @@ public class ChessMatch {
 		Position dst = dstPos.toPosition();
 		validateSourcePosition(src);
 		validateTargetPosition(src, dst);
-		Piece capturedPiece = makeMove(src, dst);
-
-		if (testCheck(currentPlayer)) { // "self-check
-			undoMove(src, dst, capturedPiece);
+		int move = findLegalMove(board.square(src), board.square(dst));
+		if (move == 0) {
 			throw new ChessException("You can't put yourself in check!");
 		}
-		if (castlingNotAllowed) {
-			undoMove(src, dst, capturedPiece);
-			castlingNotAllowed = false;
-			throw new ChessException("Castling not allowed! Next square under attack.");
-		}
+		// a promotion is to a queen first, replacePromotedPiece() changes it
+		makeMove(move);
+		UndoInfo u = undoStack[undoSize - 1];
 
-		ChessPiece movedPiece = (ChessPiece) board.piece(dst);
-
-		// promotion
-		promoted = null;
-		if (movedPiece instanceof Pawn) {
-			if ((movedPiece.getColor() == Color.WHITE && dst.getRow() == 0)
-					|| (movedPiece.getColor() == Color.BLACK && dst.getRow() == 7)) {// pawn crossed whole board
-				promoted = (ChessPiece) board.piece(dst);
-				promoted = replacePromotedPiece("Q");
-			}
-		}
-
-		check = testCheck(opponent(currentPlayer)) ? true : false;
-		if (check) {
-			checkMate = testCheckMate(opponent(currentPlayer));
-		}
-		if (!checkMate)
-			nextTurn();
-
-		// en passant
-		if (movedPiece instanceof Pawn && (dst.getRow() == src.getRow() - 2 || // whites
-				dst.getRow() == src.getRow() + 2)) // blacks
-		{
-			enPassantVulnerable = movedPiece;
-		} else {
-			enPassantVulnerable = null;
-			// after next play, the pawn is not en passant vulnerable anymore
-		}
-
-		return (ChessPiece) capturedPiece;
+		snapshot();
+		return u.captured;
 	}
 
 	public ChessPiece replacePromotedPiece(String type) {
@@ -135,132 +428,119 @@ public class ChessMatch {
 		}
 
 		Position pos = promoted.getChessPosition().toPosition();
-		Piece p = board.removePiece(pos);
-		piecesOnBoard.remove(p);
-
 		ChessPiece newPiece = newPiece(type, promoted.getColor());
-		board.placePiece(newPiece, pos);
-		piecesOnBoard.add(newPiece);
+		replacePiece(pos, newPiece);
+		check = testCheck(currentPlayer); // the new piece may give check where the queen did not
+		result = null;
+		if (undoSize > 0 && undoStack[undoSize - 1].promotedPawn != null) {
+			UndoInfo u = undoStack[undoSize - 1];
+			u.move = MoveList.encode(MoveList.from(u.move), MoveList.to(u.move),
+					MoveList.flags(u.move) & 0xF | ChessMove.promotionFlag(newPiece.getType()));
+		}
+		snapshot();
 		return newPiece;
 
 	}
 
 	private ChessPiece newPiece(String type, Color color) {
 		if (type.equals("Q"))
-			return new Queen(board, color);
+			return newPiece(PieceType.QUEEN, color);
 		if (type.equals("R"))
-			return new Rook(board, color);
+			return newPiece(PieceType.ROOK, color);
 		if (type.equals("B"))
-			return new Bishop(board, color);
+			return newPiece(PieceType.BISHOP, color);
 		if (type.equals("N"))
-			return new Knight(board, color);
-		return new Queen(board, color);// default
-	}
-
-	private Piece makeMove(Position src, Position dst) {
-		ChessPiece p = (ChessPiece) board.removePiece(src);
-		Piece capturedPiece = board.removePiece(dst);
-		if (capturedPiece != null) {
-			piecesOnBoard.remove(capturedPiece);
-			piecesCaptured.add(capturedPiece);
-		}
-		// # castling long
-		if (p instanceof King && dst.getColumn() == src.getColumn() - 2) {
-			// clear path to the castling
-			Position intermediate = new Position(src.getRow(), src.getColumn() - 1);
-			piecesOnBoard.remove(p);
-			Piece tempKing = new King(board, currentPlayer, this);
-			placeNewPiece('d', 8 - src.getRow(), (ChessPiece) tempKing);
-			castlingNotAllowed = testCheck(currentPlayer);
-			board.removePiece(intermediate);
-			piecesOnBoard.remove(tempKing);
-			piecesOnBoard.add(p);
-			// clear path to the castling
-			Position sourceR = new Position(src.getRow(), src.getColumn() - 4);
-			Position targetR = new Position(src.getRow(), src.getColumn() - 1);
-			ChessPiece rook = (ChessPiece) board.removePiece(sourceR);
-			board.placePiece(rook, targetR);
-			rook.increaseMoveCount();
-		}
-		// # castling short
-		else if (p instanceof King && dst.getColumn() == src.getColumn() + 2) {
-			Position sourceR = new Position(src.getRow(), src.getColumn() + 3);
-			Position targetR = new Position(src.getRow(), src.getColumn() + 1);
-			ChessPiece rook = (ChessPiece) board.removePiece(sourceR);
-			board.placePiece(rook, targetR);
-			rook.increaseMoveCount();
-		} // # castling #
-
-		board.placePiece(p, dst);
-		p.increaseMoveCount();
+			return newPiece(PieceType.KNIGHT, color);
+		return newPiece(PieceType.QUEEN, color);// default
+	}
 
-		// # en passant
-		if (p instanceof Pawn) {
-			if (src.getColumn() != dst.getColumn() && capturedPiece == null) {
-				Position capturedPawnPosition;
-				if (p.getColor() == Color.WHITE) {
-					// for whites, the captured pawn is below the moved pawn
-					capturedPawnPosition = new Position(dst.getRow() + 1, dst.getColumn());
-				} else {
-					// for blacks, the captured pawn is above the moved pawn
-					capturedPawnPosition = new Position(dst.getRow() - 1, dst.getColumn());
-				}
-				capturedPiece = board.removePiece(capturedPawnPosition);
-				piecesCaptured.add(capturedPiece);
-				piecesOnBoard.remove(capturedPiece);
-			}
+	private ChessPiece newPiece(PieceType type, Color color) {
+		switch (type) {
+		case PAWN:
+			return new Pawn(board, color, this);
+		case KNIGHT:
+			return new Knight(board, color);
+		case BISHOP:
+			return new Bishop(board, color);
+		case ROOK:
+			return new Rook(board, color);
+		case KING:
+			return new King(board, color, this);
+		default:
+			return new Queen(board, color);
 		}
-
-		return capturedPiece;
 	}
 
-	private void undoMove(Position src, Position dst, Piece captured) {
-		// moving piece back
-		ChessPiece p = (ChessPiece) board.removePiece(dst);
-		p.decreaseMoveCount();
-		board.placePiece(p, src);
+	/* swaps the piece on the position, e.g. a pawn for its promotion */
+	private void replacePiece(Position pos, ChessPiece newPiece) {
+		ChessPiece p = (ChessPiece) removePiece(pos);
+		pieces(p.getColor()).remove(p);
+		placePiece(newPiece, pos);
+		pieces(newPiece.getColor()).add(newPiece);
+	}
 
-		// returning captured piece
+	/* moves the pieces of a move with its flags set, see withFlags() */
+	private ChessPiece applyMove(int move, ChessPiece p) {
+		int from = MoveList.from(move);
+		int to = MoveList.to(move);
+		removePiece(board.position(from));
+		int capturedAt = ChessMove.is(move, ChessMove.EN_PASSANT) ? to + (p.getColor() == Color.WHITE ? 8 : -8) : to;
+		ChessPiece captured = (ChessPiece) removePiece(board.position(capturedAt));
 		if (captured != null) {
-			board.placePiece(captured, dst);
-			piecesCaptured.remove(captured);
-			piecesOnBoard.add(captured);
+			pieces(captured.getColor()).remove(captured);
+			piecesCaptured.add(captured);
 		}
-
-		// # castling short
-		if (p instanceof King && dst.getColumn() == src.getColumn() + 2) {
-			Position sourceR = new Position(src.getRow(), src.getColumn() + 3);
-			Position targetR = new Position(src.getRow(), src.getColumn() + 1);
-			ChessPiece rook = (ChessPiece) board.removePiece(targetR);
-			board.placePiece(rook, sourceR);
-			rook.decreaseMoveCount();
+		if (ChessMove.is(move, ChessMove.CASTLING)) {
+			boolean kingSide = to > from;
+			ChessPiece rook = (ChessPiece) removePiece(board.position(kingSide ? from + 3 : from - 4));
+			placePiece(rook, board.position(kingSide ? from + 1 : from - 1));
+			rook.increaseMoveCount();
 		}
+		placePiece(p, board.position(to));
+		p.increaseMoveCount();
+		setCastlingRights(castlingRights & CASTLING_KEPT[from] & CASTLING_KEPT[to]);
+		return captured;
+	}
 
-		// #castling long
-		if (p instanceof King && dst.getColumn() == src.getColumn() - 2) {
-			Position sourceR = new Position(src.getRow(), src.getColumn() - 4);
-			Position targetR = new Position(src.getRow(), src.getColumn() - 1);
-			ChessPiece rook = (ChessPiece) board.removePiece(targetR);
-			board.placePiece(rook, sourceR);
+	private void revertMove(int move, ChessPiece captured) {
+		int from = MoveList.from(move);
+		int to = MoveList.to(move);
+		ChessPiece p = (ChessPiece) removePiece(board.position(to));
+		p.decreaseMoveCount();
+		placePiece(p, board.position(from));
+		if (ChessMove.is(move, ChessMove.CASTLING)) {
+			boolean kingSide = to > from;
+			ChessPiece rook = (ChessPiece) removePiece(board.position(kingSide ? from + 1 : from - 1));
+			placePiece(rook, board.position(kingSide ? from + 3 : from - 4));
 			rook.decreaseMoveCount();
 		}
+		if (captured != null) {
+			int capturedAt = ChessMove.is(move, ChessMove.EN_PASSANT) ? to + (p.getColor() == Color.WHITE ? 8 : -8) : to;
+			placePiece(captured, board.position(capturedAt));
+			piecesCaptured.remove(piecesCaptured.size() - 1); // the last one captured
+			pieces(captured.getColor()).add(captured);
+		}
+	}
 
-		// # en passant
-		if (p instanceof Pawn) {
-			if (src.getColumn() != dst.getColumn() && captured == enPassantVulnerable) {
-				// undo move placed the captured pawn in the "wrong" position
-				// we must correct the position
-				ChessPiece pawn = (ChessPiece) board.removePiece(dst);
-				Position pawnPosition;
-				if (p.getColor() == Color.WHITE) {
-					pawnPosition = new Position(3, dst.getColumn());
-				} else {
-					pawnPosition = new Position(4, dst.getColumn());
-				}
-				board.placePiece(pawn, pawnPosition);
+	/* the move with its capture, en passant, castling and double push flags, which
+	 * Piece.possibleMoves(MoveList) leaves out */
+	private int withFlags(int move, ChessPiece p) {
+		int from = MoveList.from(move);
+		int to = MoveList.to(move);
+		int flags = MoveList.flags(move) & ~0xF;
+		if (board.piece(to) != null) {
+			flags |= ChessMove.CAPTURE;
+		}
+		if (p.getType() == PieceType.PAWN) {
+			if (to - from == 16 || from - to == 16) {
+				flags |= ChessMove.DOUBLE_PUSH;
+			} else if ((to - from) % 8 != 0 && board.piece(to) == null) {
+				flags |= ChessMove.CAPTURE | ChessMove.EN_PASSANT;
 			}
+		} else if (p.getType() == PieceType.KING && (to - from == 2 || from - to == 2)) {
+			flags |= ChessMove.CASTLING;
 		}
-
+		return MoveList.encode(from, to, flags);
 	}
 
 	public void validateSourcePosition(Position pos) {
@@ -281,120 +561,370 @@ public class ChessMatch {
 		}
 	}
 
+	/* the first legal move from one square to another, or 0 */
+	private int findLegalMove(int from, int to) {
+		legalMoves(legalMoves);
+		for (int i = 0; i < legalMoves.size(); i++) {
+			int move = legalMoves.get(i);
+			if (MoveList.from(move) == from && MoveList.to(move) == to) {
+				return move;
+			}
+		}
+		return 0;
+	}
+
 	private Color opponent(Color color) {
 		return (color == Color.WHITE) ? Color.BLACK : Color.WHITE;
 	}
 
+	public boolean isSquareAttacked(ChessPosition pos, Color byColor) {
+		return isSquareAttacked(board.square(pos.toPosition()), byColor);
+	}
+
+	public boolean isSquareAttacked(int square, Color byColor) {
+		return attackers(square, byColor, board.getOccupied()) != 0;
+	}
+
+	/* pieces of byColor attacking the square, found by looking outward from it:
+	 * a knight on the square would hit the attacking knights, a bishop the attacking
+	 * bishops and queens, and so on. The occupancy can differ from the board's to
+	 * ask "what if" (e.g. without the king that is about to move). */
+	long attackers(int square, Color byColor, long occupied) {
+		long queens = bitboard(byColor, PieceType.QUEEN);
+		return (Attacks.pawn(opponent(byColor), square) & bitboard(byColor, PieceType.PAWN))
+				| (Attacks.knight(square) & bitboard(byColor, PieceType.KNIGHT))
+				| (Attacks.king(square) & bitboard(byColor, PieceType.KING))
+				| (Attacks.rook(square, occupied) & (bitboard(byColor, PieceType.ROOK) | queens))
+				| (Attacks.bishop(square, occupied) & (bitboard(byColor, PieceType.BISHOP) | queens));
+	}
+
+	long bitboard(Color color, PieceType type) {
+		return board.getBitboard(ChessPiece.kind(color, type));
+	}
+
+	long occupancy(Color color) {
+		long bb = 0L;
+		for (int k = ChessPiece.kind(color, PieceType.PAWN); k <= ChessPiece.kind(color, PieceType.KING); k++) {
+			bb |= board.getBitboard(k);
+		}
+		return bb;
+	}
+
+	PieceSet pieces(Color color) {
+		return piecesOnBoard[color.ordinal()];
+	}
+
 	private ChessPiece king(Color color) {
-		List<Piece> list = piecesOnBoard.stream().filter(p -> ((ChessPiece) p).getColor() == color)
-				.collect(Collectors.toList());
-		for (Piece p : list) {
-			if (p instanceof King) {
-				return (ChessPiece) p;
-			}
+		long kings = bitboard(color, PieceType.KING);
+		if (kings == 0) {
+			throw new IllegalStateException("There is no " + color + " king on the board.");
+			// This error should NEVER occur.
 		}
-		throw new IllegalStateException("There is no " + color + " king on the board.");
-		// This error should NEVER occur.
+		return (ChessPiece) board.piece(Long.numberOfTrailingZeros(kings));
 	}
 
 	private boolean testCheck(Color color) {
-		Position kingPosition = king(color).getChessPosition().toPosition();
-		List<Piece> opponentPieces = piecesOnBoard.stream().filter(p -> ((ChessPiece) p).getColor() == opponent(color))
-				.collect(Collectors.toList());
-		for (Piece p : opponentPieces) {
-			boolean[][] mat = p.possibleMoves();
-			if (mat[kingPosition.getRow()][kingPosition.getColumn()]) {
-				return true;
+		return isSquareAttacked(king(color).getSquare(), opponent(color));
+	}
+
+	/* every piece goes on and off the board through these two, which keep the key and
+	 * the piece-square sums up to date */
+	private void placePiece(Piece piece, Position pos) {
+		board.placePiece(piece, pos);
+		int kind = piece.getKind();
+		int sq = board.square(pos);
+		positionKey ^= Zobrist.piece(kind, sq);
+		middlegame += PieceSquare.middlegame(kind, sq);
+		endgame += PieceSquare.endgame(kind, sq);
+		phase += PieceSquare.phase(kind);
+	}
+
+	private Piece removePiece(Position pos) {
+		Piece piece = board.removePiece(pos);
+		if (piece != null) {
+			int kind = piece.getKind();
+			int sq = board.square(pos);
+			positionKey ^= Zobrist.piece(kind, sq);
+			middlegame -= PieceSquare.middlegame(kind, sq);
+			endgame -= PieceSquare.endgame(kind, sq);
+			phase -= PieceSquare.phase(kind);
+		}
+		return piece;
+	}
+
+	private void setCastlingRights(int rights) {
+		positionKey ^= Zobrist.castling(castlingRights) ^ Zobrist.castling(rights);
+		castlingRights = rights;
+	}
+
+	/* the en passant file is part of the key only when a pawn can actually capture */
+	private void setEnPassantVulnerable(ChessPiece pawn) {
+		enPassantVulnerable = pawn;
+		positionKey ^= enPassantKey;
+		enPassantKey = 0L;
+		if (pawn != null) {
+			int passed = pawn.getSquare() + (pawn.getColor() == Color.WHITE ? 8 : -8);
+			if ((Attacks.pawn(pawn.getColor(), passed) & bitboard(opponent(pawn.getColor()), PieceType.PAWN)) != 0) {
+				enPassantKey = Zobrist.enPassant(passed % 8);
 			}
 		}
-		return false;
-	}
-
-	private boolean testCheckMate(Color color) {
-		// SHOULD I check for CHECK first?
-
-		List<Piece> list = piecesOnBoard.stream().filter(p -> ((ChessPiece) p).getColor() == color)
-				.collect(Collectors.toList());
-		// if there is any movement that uncheck the king
-		for (Piece p : list) {
-			boolean[][] mat = p.possibleMoves();
-			for (int i = 0; i < board.getRows(); i++) {
-				for (int j = 0; j < board.getColumns(); j++) {
-					if (mat[i][j]) {
-						Position source = ((ChessPiece) p).getChessPosition().toPosition();
-						Position target = new Position(i, j);
-						Piece captured = makeMove(source, target);
-						boolean testeCheck = testCheck(color);// still on check?
-						undoMove(source, target, captured);
-						if (!testeCheck) {
-							return false;
-						}
-					}
+		positionKey ^= enPassantKey;
+	}
+
+	/* the rights the move counts of the kings and rooks allow */
+	private int deriveCastlingRights() {
+		int rights = 0;
+		if (isUnmoved(60, Color.WHITE, PieceType.KING)) {
+			if (isUnmoved(63, Color.WHITE, PieceType.ROOK))
+				rights |= WHITE_SHORT;
+			if (isUnmoved(56, Color.WHITE, PieceType.ROOK))
+				rights |= WHITE_LONG;
+		}
+		if (isUnmoved(4, Color.BLACK, PieceType.KING)) {
+			if (isUnmoved(7, Color.BLACK, PieceType.ROOK))
+				rights |= BLACK_SHORT;
+			if (isUnmoved(0, Color.BLACK, PieceType.ROOK))
+				rights |= BLACK_LONG;
+		}
+		return rights;
+	}
+
+	private boolean isUnmoved(int square, Color color, PieceType type) {
+		ChessPiece p = (ChessPiece) board.piece(square);
+		return p != null && p.getColor() == color && p.getType() == type && p.getMoveCount() == 0;
+	}
+
+	private void updateHalfmoveClock(ChessPiece moved, Piece captured) {
+		halfmoveClock = moved.getType() == PieceType.PAWN || captured != null ? 0 : halfmoveClock + 1;
+	}
+
+	/*** FEN ***/
+	/* the position as a FEN record */
+	public String toFen() {
+		return capture().toFen();
+	}
+
+	private ChessSnapshot capture() {
+		long[] bitboards = new long[ChessPiece.KINDS];
+		for (int kind = 0; kind < bitboards.length; kind++) {
+			bitboards[kind] = board.getBitboard(kind);
+		}
+		int passed = -1;
+		if (enPassantVulnerable != null && enPassantVulnerable.isOnBoard()) {
+			passed = enPassantVulnerable.getSquare() + (enPassantVulnerable.getColor() == Color.WHITE ? 8 : -8);
+		}
+		return new ChessSnapshot(bitboards, currentPlayer, turn, halfmoveClock, getCastlingRights(), passed,
+				positionKey, check, !check ? Boolean.FALSE : result == null ? null : result == GameResult.CHECKMATE);
+	}
+
+	/* reads the record char by char, so the pieces are all it allocates */
+	private void loadFen(String fen) {
+		int n = fen.length();
+		int i = 0;
+		int row = 0;
+		int col = 0;
+		for (; i < n && fen.charAt(i) != ' '; i++) {
+			char c = fen.charAt(i);
+			if (c == '/') {
+				if (col != 8 || ++row > 7) {
+					throw invalidFen(fen);
+				}
+				col = 0;
+			} else if (c >= '1' && c <= '8') {
+				col += c - '0';
+			} else {
+				PieceType type = fenType(c);
+				if (type == null || col > 7) {
+					throw invalidFen(fen);
+				}
+				ChessPiece piece = newPiece(type, c < 'a' ? Color.WHITE : Color.BLACK);
+				placePiece(piece, board.position(row * 8 + col));
+				pieces(piece.getColor()).add(piece);
+				col++;
+			}
+			if (col > 8) {
+				throw invalidFen(fen);
+			}
+		}
+		if (row != 7 || col != 8 || Long.bitCount(bitboard(Color.WHITE, PieceType.KING)) != 1
+				|| Long.bitCount(bitboard(Color.BLACK, PieceType.KING)) != 1) {
+			throw invalidFen(fen);
+		}
+
+		// side to move
+		if (i + 2 >= n || fen.charAt(i + 2) != ' ' || fen.charAt(i + 1) != 'w' && fen.charAt(i + 1) != 'b') {
+			throw invalidFen(fen);
+		}
+		currentPlayer = fen.charAt(i + 1) == 'w' ? Color.WHITE : Color.BLACK;
+		i += 3;
+
+		// castling rights
+		int rights = 0;
+		for (; i < n && fen.charAt(i) != ' '; i++) {
+			switch (fen.charAt(i)) {
+			case 'K':
+				rights |= WHITE_SHORT;
+				break;
+			case 'Q':
+				rights |= WHITE_LONG;
+				break;
+			case 'k':
+				rights |= BLACK_SHORT;
+				break;
+			case 'q':
+				rights |= BLACK_LONG;
+				break;
+			case '-':
+				break;
+			default:
+				throw invalidFen(fen);
+			}
+		}
+		setMoveCounts(rights);
+		i++;
+
+		// en passant square
+		int passed = -1;
+		if (i < n && fen.charAt(i) != '-') {
+			if (i + 1 >= n || fen.charAt(i) < 'a' || fen.charAt(i) > 'h'
+					|| fen.charAt(i + 1) != (currentPlayer == Color.WHITE ? '6' : '3')) {
+				throw invalidFen(fen);
+			}
+			passed = ('8' - fen.charAt(i + 1)) * 8 + fen.charAt(i) - 'a';
+			i++;
+		}
+		i += 2;
+
+		// clocks, optional
+		int halfmove = 0;
+		for (; i < n && fen.charAt(i) != ' '; i++) {
+			halfmove = halfmove * 10 + digit(fen, i);
+		}
+		i++;
+		int fullmove = i < n ? 0 : 1;
+		for (; i < n && fen.charAt(i) != ' '; i++) {
+			fullmove = fullmove * 10 + digit(fen, i);
+		}
+		halfmoveClock = halfmove;
+		turn = 2 * Math.max(fullmove, 1) - (currentPlayer == Color.WHITE ? 1 : 0);
+
+		setCastlingRights(deriveCastlingRights());
+		if (currentPlayer == Color.BLACK) {
+			positionKey ^= Zobrist.side();
+		}
+		if (passed >= 0) {
+			ChessPiece pawn = (ChessPiece) board.piece(passed + (currentPlayer == Color.WHITE ? 8 : -8));
+			if (pawn == null || pawn.getType() != PieceType.PAWN || pawn.getColor() == currentPlayer) {
+				throw invalidFen(fen);
+			}
+			setEnPassantVulnerable(pawn);
+		}
+		if (testCheck(opponent(currentPlayer))) {
+			throw invalidFen(fen); // the side to move could take the king
+		}
+		check = testCheck(currentPlayer);
+		snapshot();
+	}
+
+	/* kings and rooks with castling rights, and pawns on their starting row, are unmoved;
+	 * the other pieces count as moved, so none of them can stand in for a castling rook */
+	private void setMoveCounts(int rights) {
+		for (Color color : Color.values()) {
+			PieceSet set = pieces(color);
+			int back = color == Color.WHITE ? 56 : 0;
+			int shortRight = color == Color.WHITE ? WHITE_SHORT : BLACK_SHORT;
+			int longRight = color == Color.WHITE ? WHITE_LONG : BLACK_LONG;
+			for (int k = 0; k < set.size(); k++) {
+				ChessPiece p = set.get(k);
+				int sq = p.getSquare();
+				boolean unmoved;
+				switch (p.getType()) {
+				case PAWN:
+					unmoved = sq / 8 == (color == Color.WHITE ? 6 : 1);
+					break;
+				case KING:
+					unmoved = sq == back + 4 && (rights & (shortRight | longRight)) != 0;
+					break;
+				case ROOK:
+					unmoved = sq == back + 7 && (rights & shortRight) != 0
+							|| sq == back && (rights & longRight) != 0;
+					break;
+				default:
+					unmoved = false; // only kings, rooks and pawns care
 				}
+				p.setMoveCount(unmoved ? 0 : 1);
 			}
+		}
+	}
 
+	private static int digit(String fen, int i) {
+		char c = fen.charAt(i);
+		if (c < '0' || c > '9') {
+			throw invalidFen(fen);
 		}
-		return true;
+		return c - '0';
 	}
 
-	private void placeNewPiece(char col, int row, ChessPiece piece) {
-		board.placePiece(piece, new ChessPosition(col, row).toPosition());
-		piecesOnBoard.add(piece);
+	private static ChessException invalidFen(String fen) {
+		return new ChessException("Invalid FEN: " + fen);
+	}
+
+	private static PieceType fenType(char c) {
+		switch (Character.toLowerCase(c)) {
+		case 'p':
+			return PieceType.PAWN;
+		case 'n':
+			return PieceType.KNIGHT;
+		case 'b':
+			return PieceType.BISHOP;
+		case 'r':
+			return PieceType.ROOK;
+		case 'q':
+			return PieceType.QUEEN;
+		case 'k':
+			return PieceType.KING;
+		default:
+			return null;
+		}
 	}
 
 	private void nextTurn() {
 		turn++;
+		positionKey ^= Zobrist.side();
 		currentPlayer = currentPlayer == Color.WHITE ? Color.BLACK : Color.WHITE;
 	}
 
-	private void initialSetup() {
-		/* testing castling */
-		/*
-		 * //placeNewPiece('a', 7, new Pawn(board, Color.WHITE, this));
-		 * placeNewPiece('a', 1, new Rook(board, Color.WHITE)); placeNewPiece('h', 1,
-		 * new Rook(board, Color.WHITE)); placeNewPiece('e', 1, new King(board,
-		 * Color.WHITE, this)); placeNewPiece('d', 8, new Rook(board, Color.BLACK));
-		 * placeNewPiece('e', 8, new King(board, Color.BLACK, this)); /
-		 **/
-		// Whites
-
-		placeNewPiece('a', 2, new Pawn(board, Color.WHITE, this));
-		placeNewPiece('b', 2, new Pawn(board, Color.WHITE, this));
-		placeNewPiece('c', 2, new Pawn(board, Color.WHITE, this));
-		placeNewPiece('d', 2, new Pawn(board, Color.WHITE, this));
-		placeNewPiece('e', 2, new Pawn(board, Color.WHITE, this));
-		placeNewPiece('f', 2, new Pawn(board, Color.WHITE, this));
-		placeNewPiece('g', 2, new Pawn(board, Color.WHITE, this));
-		placeNewPiece('h', 2, new Pawn(board, Color.WHITE, this));
-
-		placeNewPiece('a', 1, new Rook(board, Color.WHITE));
-		placeNewPiece('b', 1, new Knight(board, Color.WHITE));
-		placeNewPiece('c', 1, new Bishop(board, Color.WHITE));
-		placeNewPiece('d', 1, new Queen(board, Color.WHITE));
-		placeNewPiece('e', 1, new King(board, Color.WHITE, this));
-		placeNewPiece('f', 1, new Bishop(board, Color.WHITE));
-		placeNewPiece('g', 1, new Knight(board, Color.WHITE));
-		placeNewPiece('h', 1, new Rook(board, Color.WHITE));
-
-		// Blacks placeNewPiece('a', 8, new Rook(board, Color.BLACK));
-		placeNewPiece('a', 8, new Rook(board, Color.BLACK));
-		placeNewPiece('b', 8, new Knight(board, Color.BLACK));
-		placeNewPiece('c', 8, new Bishop(board, Color.BLACK));
-		placeNewPiece('d', 8, new Queen(board, Color.BLACK));
-		placeNewPiece('e', 8, new King(board, Color.BLACK, this));
-		placeNewPiece('f', 8, new Bishop(board, Color.BLACK));
-		placeNewPiece('g', 8, new Knight(board, Color.BLACK));
-		placeNewPiece('h', 8, new Rook(board, Color.BLACK));
-
-		placeNewPiece('a', 7, new Pawn(board, Color.BLACK, this));
-		placeNewPiece('b', 7, new Pawn(board, Color.BLACK, this));
-		placeNewPiece('c', 7, new Pawn(board, Color.BLACK, this));
-		placeNewPiece('d', 7, new Pawn(board, Color.BLACK, this));
-		placeNewPiece('e', 7, new Pawn(board, Color.BLACK, this));
-		placeNewPiece('f', 7, new Pawn(board, Color.BLACK, this));
-		placeNewPiece('g', 7, new Pawn(board, Color.BLACK, this));
-		placeNewPiece('h', 7, new Pawn(board, Color.BLACK, this));
-		/**/
+	private void previousTurn() {
+		turn--;
+		positionKey ^= Zobrist.side();
+		currentPlayer = opponent(currentPlayer);
+	}
+
+	private UndoInfo pushUndo() {
+		if (undoSize == undoStack.length) {
+			UndoInfo[] bigger = new UndoInfo[Math.max(64, undoStack.length * 2)];
+			System.arraycopy(undoStack, 0, bigger, 0, undoSize);
+			for (int i = undoSize; i < bigger.length; i++) {
+				bigger[i] = new UndoInfo();
+			}
+			undoStack = bigger;
+		}
+		return undoStack[undoSize++];
+	}
+
+	/* what makeMove(int) needs to take a move back; the objects are reused */
+	private static class UndoInfo {
+		int move;
+		long key; // of the position the move was played in
+		ChessPiece captured;
+		ChessPiece promotedPawn;
+		ChessPiece enPassantVulnerable;
+		long enPassantKey;
+		int castlingRights;
+		int halfmoveClock;
+		boolean check;
+		GameResult result;
+		ChessPiece promoted;
 	}
 
 }
@@ -0,0 +1,50 @@
+package chess;
+
+import boardgame.MoveList;
+
+/* Flags of the chess moves kept in a MoveList, and helpers to read them. */
+public final class ChessMove {
+
+	public static final int CAPTURE = 1;
+	public static final int EN_PASSANT = 2;
+	public static final int CASTLING = 4;
+	public static final int DOUBLE_PUSH = 8;
+	private static final int PROMOTION_SHIFT = 4; // PieceType ordinal of the promoted piece, 0 if none
+
+	private static final PieceType[] TYPES = PieceType.values();
+
+	private ChessMove() {
+	}
+
+	public static int promotionFlag(PieceType type) {
+		return type.ordinal() << PROMOTION_SHIFT;
+	}
+
+	public static boolean isCapture(int move) {
+		return (MoveList.flags(move) & CAPTURE) != 0;
+	}
+
+	public static boolean is(int move, int flag) {
+		return (MoveList.flags(move) & flag) != 0;
+	}
+
+	/* the piece a pawn is promoted to, or null */
+	public static PieceType promotion(int move) {
+		int type = MoveList.flags(move) >>> PROMOTION_SHIFT;
+		return type == 0 ? null : TYPES[type];
+	}
+
+	/* coordinate notation, e.g. "e2e4" or "e7e8q" */
+	public static String toString(int move) {
+		String s = squareName(MoveList.from(move)) + squareName(MoveList.to(move));
+		PieceType promotion = promotion(move);
+		if (promotion != null) {
+			s += promotion == PieceType.KNIGHT ? "n" : promotion.name().substring(0, 1).toLowerCase();
+		}
+		return s;
+	}
+
+	public static String squareName(int square) {
+		return "" + (char) ('a' + square % 8) + (8 - square / 8);
+	}
+}
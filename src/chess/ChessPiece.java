@@ -1,13 +1,18 @@
 package chess;
 
 import boardgame.Board;
+import boardgame.MoveList;
 import boardgame.Piece;
 import boardgame.Position;
 
 public abstract class ChessPiece extends Piece {
 
+	private static final int TYPES = PieceType.values().length;
+	public static final int KINDS = Color.values().length * TYPES;
+
 	private Color color;
 	private int moveCount;
+	int setIndex = -1; // slot in the match's PieceSet
 	
 
 	public ChessPiece(Board board, Color color) {
@@ -18,6 +23,15 @@ public abstract class ChessPiece extends Piece {
 	public Color getColor() {
 		return color;
 	}
+	public abstract PieceType getType();
+
+	@Override
+	public int getKind() {
+		return kind(color, getType());
+	}
+	public static int kind(Color color, PieceType type) {
+		return color.ordinal() * TYPES + type.ordinal();
+	}
 	public int getMoveCount() {
 		return moveCount;
 	}
@@ -28,14 +42,72 @@ public abstract class ChessPiece extends Piece {
 	public void decreaseMoveCount() {
 		moveCount--;
 	}
+	void setMoveCount(int moveCount) {
+		this.moveCount = moveCount;
+	}
 	
+	/* squares this piece can move to, as a bitboard; moves that leave the own king in check included */
+	public abstract long possibleTargets();
+
+	@Override
+	public boolean[][] possibleMoves() {
+		return movesMatrix(possibleTargets());
+	}
+	@Override
+	public void possibleMoves(MoveList moves) {
+		int from = getSquare();
+		long targets = possibleTargets();
+		while (targets != 0) {
+			moves.add(from, Long.numberOfTrailingZeros(targets), 0);
+			targets &= targets - 1;
+		}
+	}
+	@Override
+	public boolean possibleMove(Position pos) {
+		return (possibleTargets() & 1L << getBoard().square(pos)) != 0;
+	}
+	@Override
+	public boolean isThereAnyPossibleMove() {
+		return possibleTargets() != 0;
+	}
+
 	public ChessPosition getChessPosition() {
 		return ChessPosition.fromPosition(position);
 	}
+	public int getSquare() {
+		return getBoard().square(position);
+	}
 	
 	protected boolean isThereOpponentPiece(Position pos) {
 		ChessPiece p = (ChessPiece) getBoard().piece(pos);
 		return p != null && p.getColor() != this.getColor();
 	}
 
+	/* occupancy of all the pieces of a color, from the board bitboards */
+	protected long colorPieces(Color color) {
+		long bb = 0L;
+		for (int k = kind(color, PieceType.PAWN); k <= kind(color, PieceType.KING); k++) {
+			bb |= getBoard().getBitboard(k);
+		}
+		return bb;
+	}
+	protected long ownPieces() {
+		return colorPieces(color);
+	}
+	protected long opponentPieces() {
+		return colorPieces(color == Color.WHITE ? Color.BLACK : Color.WHITE);
+	}
+
+	/* expands a set of target squares into the possibleMoves() matrix */
+	protected boolean[][] movesMatrix(long targets) {
+		int columns = getBoard().getColumns();
+		boolean[][] mat = new boolean[getBoard().getRows()][columns];
+		while (targets != 0) {
+			int sq = Long.numberOfTrailingZeros(targets);
+			mat[sq / columns][sq % columns] = true;
+			targets &= targets - 1;
+		}
+		return mat;
+	}
+
 }
@@ -0,0 +1,152 @@
+package chess;
+
+/* Immutable copy of a ChessMatch position: the twelve piece bitboards and the state
+ * around them, a hundred-odd bytes. Any thread can read it, or make a ChessMatch of its
+ * own from it, while the match it came from keeps moving. */
+public final class ChessSnapshot {
+
+	private static final PieceType[] TYPES = PieceType.values();
+
+	private final long[] bitboards; // by ChessPiece.kind(), never handed out
+	private final Color currentPlayer;
+	private final int turn;
+	private final int halfmoveClock;
+	private final int castlingRights;
+	private final int enPassantSquare;
+	private final long positionKey;
+	private final boolean check;
+	private volatile Boolean checkMate; // null if the match had not worked it out, see getCheckMate()
+
+	ChessSnapshot(long[] bitboards, Color currentPlayer, int turn, int halfmoveClock, int castlingRights,
+			int enPassantSquare, long positionKey, boolean check, Boolean checkMate) {
+		this.bitboards = bitboards;
+		this.currentPlayer = currentPlayer;
+		this.turn = turn;
+		this.halfmoveClock = halfmoveClock;
+		this.castlingRights = castlingRights;
+		this.enPassantSquare = enPassantSquare;
+		this.positionKey = positionKey;
+		this.check = check;
+		this.checkMate = checkMate;
+	}
+
+	/***** GETTERS *****/
+	public Color getCurrentPlayer() {
+		return currentPlayer;
+	}
+	public int getTurn() {
+		return turn;
+	}
+	public int getHalfmoveClock() {
+		return halfmoveClock;
+	}
+	/* bits as in ChessMatch.getCastlingRights() */
+	public int getCastlingRights() {
+		return castlingRights;
+	}
+	/* the square a pawn passed with a double push, or -1 */
+	public int getEnPassantSquare() {
+		return enPassantSquare;
+	}
+	public long getPositionKey() {
+		return positionKey;
+	}
+	public boolean getCheck() {
+		return check;
+	}
+	/* searched for on the first call if the match had not, and only in check; threads racing
+	 * on it all reach the same answer */
+	public boolean getCheckMate() {
+		Boolean mate = checkMate;
+		if (mate == null) {
+			mate = check && toMatch().getCheckMate();
+			checkMate = mate;
+		}
+		return mate;
+	}
+	public long getBitboard(Color color, PieceType type) {
+		return bitboards[ChessPiece.kind(color, type)];
+	}
+
+	/* ChessPiece.kind() of the piece on a square, or -1 */
+	public int getKind(int square) {
+		long bit = 1L << square;
+		for (int kind = 0; kind < bitboards.length; kind++) {
+			if ((bitboards[kind] & bit) != 0) {
+				return kind;
+			}
+		}
+		return -1;
+	}
+	/* null for an empty square */
+	public PieceType getType(int square) {
+		int kind = getKind(square);
+		return kind < 0 ? null : TYPES[kind % 6];
+	}
+	public Color getColor(int square) {
+		int kind = getKind(square);
+		return kind < 0 ? null : kind < 6 ? Color.BLACK : Color.WHITE;
+	}
+
+	/***** FUNCTIONS *****/
+	/* a live match of this position, for a thread to play on */
+	public ChessMatch toMatch() {
+		return new ChessMatch(toFen());
+	}
+
+	public String toFen() {
+		StringBuilder sb = new StringBuilder(90);
+		for (int row = 0; row < 8; row++) {
+			int empty = 0;
+			for (int col = 0; col < 8; col++) {
+				int kind = getKind(row * 8 + col);
+				if (kind < 0) {
+					empty++;
+					continue;
+				}
+				if (empty > 0) {
+					sb.append((char) ('0' + empty));
+					empty = 0;
+				}
+				sb.append(fenChar(kind));
+			}
+			if (empty > 0) {
+				sb.append((char) ('0' + empty));
+			}
+			if (row < 7) {
+				sb.append('/');
+			}
+		}
+		sb.append(currentPlayer == Color.WHITE ? " w " : " b ");
+		if (castlingRights == 0) {
+			sb.append('-');
+		}
+		if ((castlingRights & ChessMatch.WHITE_SHORT) != 0)
+			sb.append('K');
+		if ((castlingRights & ChessMatch.WHITE_LONG) != 0)
+			sb.append('Q');
+		if ((castlingRights & ChessMatch.BLACK_SHORT) != 0)
+			sb.append('k');
+		if ((castlingRights & ChessMatch.BLACK_LONG) != 0)
+			sb.append('q');
+		sb.append(' ');
+		if (enPassantSquare >= 0) {
+			sb.append((char) ('a' + enPassantSquare % 8)).append((char) ('8' - enPassantSquare / 8));
+		} else {
+			sb.append('-');
+		}
+		sb.append(' ').append(halfmoveClock).append(' ').append((turn + 1) / 2);
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return toFen();
+	}
+
+	private static char fenChar(int kind) {
+		PieceType type = TYPES[kind % 6];
+		char c = type == PieceType.KNIGHT ? 'n' : Character.toLowerCase(type.name().charAt(0));
+		return kind < 6 ? c : Character.toUpperCase(c);
+	}
+}
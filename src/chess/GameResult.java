@@ -0,0 +1,6 @@
+package chess;
+
+/* the state of a match for the side to move, see ChessMatch.getResult() */
+public enum GameResult {
+	ONGOING, CHECKMATE, STALEMATE, DRAW;
+}
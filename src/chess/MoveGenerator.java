@@ -0,0 +1,206 @@
+package chess;
+
+import boardgame.MoveList;
+
+/* Strictly legal move generation. The checkers and the pinned pieces are worked out
+ * once per position, so no move has to be made and taken back to know it is legal. */
+final class MoveGenerator {
+
+	private static final PieceType[] PROMOTIONS = { PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP,
+			PieceType.KNIGHT };
+
+	private final ChessMatch match;
+
+	// state of the current run
+	private MoveList out;
+	private boolean firstOnly;
+	private int count;
+
+	MoveGenerator(ChessMatch match) {
+		this.match = match;
+	}
+
+	/* appends every legal move of the color to the list, returns how many */
+	int generate(Color us, MoveList moves) {
+		return run(us, moves, false);
+	}
+
+	/* stops at the first legal move found */
+	boolean hasLegalMove(Color us) {
+		return run(us, null, true) > 0;
+	}
+
+	private int run(Color us, MoveList moves, boolean firstOnly) {
+		this.out = moves;
+		this.firstOnly = firstOnly;
+		this.count = 0;
+
+		Color them = us == Color.WHITE ? Color.BLACK : Color.WHITE;
+		long own = match.occupancy(us);
+		long opp = match.occupancy(them);
+		long occupied = own | opp;
+		int kingSq = Long.numberOfTrailingZeros(match.bitboard(us, PieceType.KING));
+		long checkers = match.attackers(kingSq, them, occupied);
+
+		// king moves: the target must be safe once the king has left its square
+		long withoutKing = occupied & ~(1L << kingSq);
+		long kingTargets = Attacks.king(kingSq) & ~own;
+		while (kingTargets != 0) {
+			int to = Long.numberOfTrailingZeros(kingTargets);
+			kingTargets &= kingTargets - 1;
+			if (match.attackers(to, them, withoutKing) == 0 && emit(kingSq, to, captureFlag(opp, to))) {
+				return count;
+			}
+		}
+		if (Long.bitCount(checkers) > 1) {
+			return count; // double check: only the king can move
+		}
+
+		// in check, the other pieces must capture the checker or step in its way
+		long allowed = ~own;
+		if (checkers != 0) {
+			allowed = checkers | Attacks.between(kingSq, Long.numberOfTrailingZeros(checkers));
+		}
+		long pinned = pinned(kingSq, them, own, opp, occupied);
+		if (firstOnly && checkers != 0) {
+			// a capture of the checker is the likeliest escape after the king's; a pinned
+			// piece cannot make it, any other attacker can
+			int checkerSq = Long.numberOfTrailingZeros(checkers);
+			long capturers = match.attackers(checkerSq, us, occupied) & ~pinned & ~(1L << kingSq);
+			if (capturers != 0) {
+				int from = Long.numberOfTrailingZeros(capturers);
+				emitAll((ChessPiece) match.getBoard().piece(from), from, checkers, opp);
+				return count;
+			}
+		}
+		long epTarget = enPassantTarget(us);
+
+		PieceSet pieces = match.pieces(us);
+		for (int i = 0; i < pieces.size(); i++) {
+			ChessPiece p = pieces.get(i);
+			if (p.getType() == PieceType.KING) {
+				continue;
+			}
+			int from = p.getSquare();
+			long targets = p.possibleTargets();
+			if (p.getType() == PieceType.PAWN && (targets & epTarget) != 0) {
+				targets &= ~epTarget;
+				if (enPassantIsLegal(from, epTarget, kingSq, them, occupied) && emit(from,
+						Long.numberOfTrailingZeros(epTarget), ChessMove.EN_PASSANT | ChessMove.CAPTURE)) {
+					return count;
+				}
+			}
+			targets &= allowed;
+			if ((pinned & 1L << from) != 0) {
+				targets &= Attacks.line(kingSq, from); // a pinned piece can only move along the pin
+			}
+			if (emitAll(p, from, targets, opp)) {
+				return count;
+			}
+		}
+
+		if (checkers == 0) {
+			castling(us, them, kingSq, occupied);
+		}
+		return count;
+	}
+
+	private boolean emitAll(ChessPiece p, int from, long targets, long opp) {
+		boolean pawn = p.getType() == PieceType.PAWN;
+		while (targets != 0) {
+			int to = Long.numberOfTrailingZeros(targets);
+			targets &= targets - 1;
+			int flags = captureFlag(opp, to);
+			if (pawn && (to < 8 || to >= 56)) {
+				for (PieceType type : PROMOTIONS) {
+					if (emit(from, to, flags | ChessMove.promotionFlag(type))) {
+						return true;
+					}
+				}
+				continue;
+			}
+			if (pawn && (to - from == 16 || from - to == 16)) {
+				flags |= ChessMove.DOUBLE_PUSH;
+			}
+			if (emit(from, to, flags)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/* own pieces standing alone between the king and an opponent slider */
+	private long pinned(int kingSq, Color them, long own, long opp, long occupied) {
+		long queens = match.bitboard(them, PieceType.QUEEN);
+		// sliders that would hit the king if the own pieces were not there
+		long snipers = (Attacks.rook(kingSq, opp) & (match.bitboard(them, PieceType.ROOK) | queens))
+				| (Attacks.bishop(kingSq, opp) & (match.bitboard(them, PieceType.BISHOP) | queens));
+		long pinned = 0L;
+		while (snipers != 0) {
+			int s = Long.numberOfTrailingZeros(snipers);
+			snipers &= snipers - 1;
+			long between = Attacks.between(kingSq, s) & occupied;
+			if (Long.bitCount(between) == 1 && (between & own) != 0) {
+				pinned |= between;
+			}
+		}
+		return pinned;
+	}
+
+	/* square behind the opponent pawn that has just moved two squares */
+	private long enPassantTarget(Color us) {
+		ChessPiece vulnerable = match.getEnPassantVulnerable();
+		if (vulnerable == null || !vulnerable.isOnBoard() || vulnerable.getColor() == us) {
+			return 0L;
+		}
+		return 1L << (vulnerable.getSquare() + (us == Color.WHITE ? -8 : 8));
+	}
+
+	/* both pawns leave their squares at once, so the capture is checked on the resulting occupancy */
+	private boolean enPassantIsLegal(int from, long epTarget, int kingSq, Color them, long occupied) {
+		int to = Long.numberOfTrailingZeros(epTarget);
+		long captured = 1L << (to + (them == Color.BLACK ? 8 : -8));
+		long after = (occupied & ~(1L << from) & ~captured) | epTarget;
+		return (match.attackers(kingSq, them, after) & ~captured) == 0;
+	}
+
+	private void castling(Color us, Color them, int kingSq, long occupied) {
+		ChessPiece king = (ChessPiece) match.getBoard().piece(kingSq);
+		if (king.getMoveCount() != 0 || kingSq % 8 != 4) {
+			return;
+		}
+		// short: rook three squares to the right, the king passes through two squares
+		if (isUnmovedRook(kingSq + 3, us) && (occupied & (1L << kingSq + 1 | 1L << kingSq + 2)) == 0
+				&& match.attackers(kingSq + 1, them, occupied) == 0
+				&& match.attackers(kingSq + 2, them, occupied) == 0) {
+			if (emit(kingSq, kingSq + 2, ChessMove.CASTLING)) {
+				return;
+			}
+		}
+		// long: rook four squares to the left, three empty squares
+		if (isUnmovedRook(kingSq - 4, us)
+				&& (occupied & (1L << kingSq - 1 | 1L << kingSq - 2 | 1L << kingSq - 3)) == 0
+				&& match.attackers(kingSq - 1, them, occupied) == 0
+				&& match.attackers(kingSq - 2, them, occupied) == 0) {
+			emit(kingSq, kingSq - 2, ChessMove.CASTLING);
+		}
+	}
+
+	private boolean isUnmovedRook(int square, Color us) {
+		ChessPiece p = (ChessPiece) match.getBoard().piece(square);
+		return p != null && p.getType() == PieceType.ROOK && p.getColor() == us && p.getMoveCount() == 0;
+	}
+
+	private static int captureFlag(long opp, int to) {
+		return (opp & 1L << to) != 0 ? ChessMove.CAPTURE : 0;
+	}
+
+	/* records a move; true when the run can stop */
+	private boolean emit(int from, int to, int flags) {
+		count++;
+		if (out != null) {
+			out.add(from, to, flags);
+		}
+		return firstOnly;
+	}
+}
@@ -0,0 +1,38 @@
+package chess;
+
+/* Pieces of one color on the board. Adding and removing are O(1): each piece
+ * remembers its slot, and removing moves the last piece into the hole. */
+public class PieceSet {
+	private ChessPiece[] pieces = new ChessPiece[16];
+	private int size;
+
+	public int size() {
+		return size;
+	}
+
+	public ChessPiece get(int i) {
+		return pieces[i];
+	}
+
+	void add(ChessPiece piece) {
+		if (size == pieces.length) {
+			ChessPiece[] bigger = new ChessPiece[pieces.length * 2];
+			System.arraycopy(pieces, 0, bigger, 0, size);
+			pieces = bigger;
+		}
+		piece.setIndex = size;
+		pieces[size++] = piece;
+	}
+
+	void remove(ChessPiece piece) {
+		int i = piece.setIndex;
+		if (i < 0 || pieces[i] != piece) {
+			return; // not in this set
+		}
+		ChessPiece last = pieces[--size];
+		pieces[i] = last;
+		last.setIndex = i;
+		pieces[size] = null;
+		piece.setIndex = -1;
+	}
+}
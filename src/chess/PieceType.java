@@ -0,0 +1,5 @@
+package chess;
+
+public enum PieceType {
+	PAWN, KNIGHT, BISHOP, ROOK, QUEEN, KING;
+}
@@ -0,0 +1,51 @@
+package chess;
+
+import java.util.Random;
+
+/* Random keys XORed together into the 64-bit position key of a ChessMatch:
+ * one per piece kind and square, one for black to move, one per set of castling
+ * rights and one per en passant file. The seed is fixed, so keys stored in files
+ * stay valid between runs. */
+public final class Zobrist {
+
+	private static final long[] PIECES = new long[ChessPiece.KINDS * 64];
+	private static final long[] CASTLING = new long[16];
+	private static final long[] EN_PASSANT = new long[8];
+	private static final long SIDE;
+
+	static {
+		Random random = new Random(0x5EED_C4E55L);
+		for (int i = 0; i < PIECES.length; i++) {
+			PIECES[i] = random.nextLong();
+		}
+		// no rights at all adds nothing, so an empty board has key 0
+		for (int i = 1; i < CASTLING.length; i++) {
+			CASTLING[i] = random.nextLong();
+		}
+		for (int i = 0; i < EN_PASSANT.length; i++) {
+			EN_PASSANT[i] = random.nextLong();
+		}
+		SIDE = random.nextLong();
+	}
+
+	private Zobrist() {
+	}
+
+	public static long piece(int kind, int square) {
+		return PIECES[kind * 64 + square];
+	}
+
+	/* rights as the bits of ChessMatch.getCastlingRights() */
+	public static long castling(int rights) {
+		return CASTLING[rights];
+	}
+
+	public static long enPassant(int file) {
+		return EN_PASSANT[file];
+	}
+
+	/* added when black is to move */
+	public static long side() {
+		return SIDE;
+	}
+}
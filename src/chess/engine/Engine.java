@@ -0,0 +1,382 @@
+package chess.engine;
+
+import boardgame.MoveList;
+import chess.ChessMatch;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.PieceType;
+
+/* Computer player: negamax alpha-beta with iterative deepening, a transposition table,
+ * ordered moves (table move, captures by MVV-LVA, killers) and a quiescence search over
+ * captures and promotions. Endgames a Tablebase covers are scored from it. It plays on
+ * the match with makeMove/undoMove and leaves it as it found it. */
+public class Engine {
+
+	public static final int INFINITE = 32000;
+	public static final int MATE = 31000; // minus the plies to the mate
+	private static final int MAX_PLY = 128;
+
+	private static final int TABLE_MOVE = 1 << 30;
+	private static final int GOOD_CAPTURE = 1 << 20;
+	private static final int KILLER = 1 << 19;
+
+	private final TranspositionTable table;
+	private OpeningBook book;
+	private Tablebase tablebase;
+	private long timeLimit = 1000; // ms, 0 for none
+	private long nodeLimit; // 0 for none
+	private int maxDepth = 64;
+
+	private final MoveList[] lists = new MoveList[MAX_PLY + 1];
+	private final int[][] order = new int[MAX_PLY + 1][];
+	private final int[][] killers = new int[MAX_PLY + 1][2];
+
+	private ChessMatch match;
+	private long deadline;
+	private long nodes;
+	private boolean stopped;
+	private volatile boolean aborted;
+	private int score;
+	private int depth;
+	private int rootMove;
+
+	public Engine(TranspositionTable table) {
+		this.table = table;
+		for (int i = 0; i < lists.length; i++) {
+			lists[i] = new MoveList();
+			order[i] = new int[256];
+		}
+	}
+
+	/*** Limits ***/
+	public void setTimeLimit(long millis) {
+		this.timeLimit = millis;
+	}
+	public void setNodeLimit(long nodes) {
+		this.nodeLimit = nodes;
+	}
+	public void setMaxDepth(int depth) {
+		this.maxDepth = Math.max(1, Math.min(depth, MAX_PLY - 1));
+	}
+	int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/*** Last search ***/
+	/* score of the best move, for the side that played it */
+	public int getScore() {
+		return score;
+	}
+	/* deepest iteration completed */
+	public int getDepth() {
+		return depth;
+	}
+	public long getNodes() {
+		return nodes;
+	}
+
+	public TranspositionTable getTable() {
+		return table;
+	}
+
+	/* consulted before searching; null for none */
+	public void setBook(OpeningBook book) {
+		this.book = book;
+	}
+
+	/* probed below the root for exact endgame scores; null for none */
+	public void setTablebase(Tablebase tablebase) {
+		this.tablebase = tablebase;
+	}
+
+	/*** Search ***/
+	/* the best move for the current player, or 0 if there is none */
+	public int bestMove(ChessMatch match) {
+		int move = bookMove(match);
+		if (move != 0) {
+			return move;
+		}
+		clearStop();
+		table.newSearch();
+		return iterate(match, 1);
+	}
+
+	/* the book move of the position, or 0; the last search then reports depth 0 */
+	int bookMove(ChessMatch match) {
+		int move = book != null ? book.bestMove(match, lists[0]) : 0;
+		if (move != 0) {
+			nodes = 0;
+			score = 0;
+			depth = 0;
+		}
+		return move;
+	}
+
+	/* ends a search running on another thread, which returns the best move found so far */
+	public void stop() {
+		aborted = true;
+	}
+
+	/* clears stop() before a search is handed to another thread */
+	void clearStop() {
+		aborted = false;
+	}
+
+	/* deepens from firstDepth; helper threads of a LazySmp start at different depths so
+	 * they fill the shared table with different parts of the tree */
+	int iterate(ChessMatch match, int firstDepth) {
+		this.match = match;
+		nodes = 0;
+		stopped = false;
+		score = 0;
+		depth = 0;
+		deadline = timeLimit > 0 ? System.currentTimeMillis() + timeLimit : Long.MAX_VALUE;
+		for (int[] k : killers) {
+			k[0] = 0;
+			k[1] = 0;
+		}
+
+		MoveList root = new MoveList();
+		match.legalMoves(root);
+		if (root.size() == 0) {
+			return 0;
+		}
+		int best = root.get(0);
+		for (int d = Math.min(firstDepth, maxDepth); d <= maxDepth; d++) {
+			int s = search(d, 0, -INFINITE, INFINITE);
+			if (stopped) {
+				break; // a cut-off iteration is not trusted
+			}
+			best = rootMove;
+			score = s;
+			depth = d;
+			if (Math.abs(s) >= MATE - MAX_PLY) {
+				break; // a forced mate, deeper won't find better
+			}
+		}
+		this.match = null;
+		return best;
+	}
+
+	private int search(int depth, int ply, int alpha, int beta) {
+		if (ply > 0) {
+			if (match.getRepetitions() > 0 || match.isFiftyMoveRule() || match.isInsufficientMaterial()) {
+				return 0; // a position repeated once can be repeated again, so it scores as a draw
+			}
+			int s = tablebaseScore(ply);
+			if (s != Tablebase.NONE) {
+				return s;
+			}
+		}
+		boolean inCheck = match.getCheck();
+		if (inCheck) {
+			depth++; // check extension
+		}
+		if (depth <= 0 || ply >= MAX_PLY) {
+			return quiescence(ply, alpha, beta);
+		}
+		if (timeUp()) {
+			return 0;
+		}
+		nodes++;
+
+		long key = match.getPositionKey();
+		long entry = table.probe(key);
+		int tableMove = 0;
+		if (entry != TranspositionTable.MISS) {
+			tableMove = TranspositionTable.move(entry);
+			if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+				int s = fromTable(TranspositionTable.score(entry), ply);
+				int bound = TranspositionTable.bound(entry);
+				if (bound == TranspositionTable.EXACT
+						|| bound == TranspositionTable.LOWER && s >= beta
+						|| bound == TranspositionTable.UPPER && s <= alpha) {
+					return s;
+				}
+			}
+		}
+
+		MoveList moves = lists[ply];
+		match.legalMoves(moves);
+		if (moves.size() == 0) {
+			return inCheck ? -MATE + ply : 0;
+		}
+		scoreMoves(moves, ply, tableMove);
+
+		int alphaBefore = alpha;
+		int best = -INFINITE;
+		int bestMove = 0;
+		for (int i = 0; i < moves.size(); i++) {
+			int move = next(moves, ply, i);
+			match.makeMove(move);
+			int s = -search(depth - 1, ply + 1, -beta, -alpha);
+			match.undoMove();
+			if (stopped) {
+				return 0;
+			}
+			if (s > best) {
+				best = s;
+				bestMove = move;
+				if (s > alpha) {
+					alpha = s;
+					if (s >= beta) {
+						if (!ChessMove.isCapture(move) && ChessMove.promotion(move) == null
+								&& killers[ply][0] != move) {
+							killers[ply][1] = killers[ply][0];
+							killers[ply][0] = move;
+						}
+						break;
+					}
+				}
+			}
+		}
+
+		int bound = best >= beta ? TranspositionTable.LOWER
+				: best > alphaBefore ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+		table.store(key, bestMove, toTable(best, ply), depth, bound);
+		if (ply == 0) {
+			rootMove = bestMove;
+		}
+		return best;
+	}
+
+	/* settles the captures before a position is evaluated; in check every evasion counts */
+	private int quiescence(int ply, int alpha, int beta) {
+		if (timeUp()) {
+			return 0;
+		}
+		nodes++;
+		int exact = tablebaseScore(ply);
+		if (exact != Tablebase.NONE) {
+			return exact;
+		}
+		if (ply >= MAX_PLY) {
+			return Evaluation.evaluate(match);
+		}
+		boolean inCheck = match.getCheck();
+		MoveList moves = lists[ply];
+		match.legalMoves(moves);
+		if (moves.size() == 0) {
+			return inCheck ? -MATE + ply : 0;
+		}
+		int best = -INFINITE;
+		if (!inCheck) {
+			best = Evaluation.evaluate(match);
+			if (best >= beta) {
+				return best;
+			}
+			if (best > alpha) {
+				alpha = best;
+			}
+			int n = 0;
+			for (int i = 0; i < moves.size(); i++) {
+				int move = moves.get(i);
+				if (ChessMove.isCapture(move) || ChessMove.promotion(move) != null) {
+					moves.set(n++, move);
+				}
+			}
+			moves.truncate(n);
+		}
+		scoreMoves(moves, ply, 0);
+
+		for (int i = 0; i < moves.size(); i++) {
+			int move = next(moves, ply, i);
+			match.makeMove(move);
+			int s = -quiescence(ply + 1, -beta, -alpha);
+			match.undoMove();
+			if (stopped) {
+				return 0;
+			}
+			if (s > best) {
+				best = s;
+				if (s > alpha) {
+					alpha = s;
+					if (s >= beta) {
+						break;
+					}
+				}
+			}
+		}
+		return best;
+	}
+
+	/* the score of a position the tablebase covers, or Tablebase.NONE */
+	private int tablebaseScore(int ply) {
+		int v = tablebase != null ? tablebase.probe(match) : Tablebase.NONE;
+		if (v == Tablebase.NONE || v == 0) {
+			return v;
+		}
+		return v > 0 ? MATE - ply - v : -MATE + ply + Tablebase.pliesToMate(v);
+	}
+
+	private boolean timeUp() {
+		if (stopped) {
+			return true;
+		}
+		if ((nodes & 1023) == 0) {
+			stopped = aborted || nodeLimit > 0 && nodes >= nodeLimit || System.currentTimeMillis() >= deadline;
+		}
+		return stopped;
+	}
+
+	/*** Move ordering ***/
+	private void scoreMoves(MoveList moves, int ply, int tableMove) {
+		int[] s = order[ply];
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			if (move == tableMove) {
+				s[i] = TABLE_MOVE;
+			} else if (ChessMove.isCapture(move) || ChessMove.promotion(move) != null) {
+				s[i] = GOOD_CAPTURE + mvvLva(move);
+			} else if (move == killers[ply][0]) {
+				s[i] = KILLER + 1;
+			} else if (move == killers[ply][1]) {
+				s[i] = KILLER;
+			} else {
+				s[i] = 0;
+			}
+		}
+	}
+
+	/* most valuable victim first, then least valuable attacker */
+	private int mvvLva(int move) {
+		ChessPiece victim = match.getPiece(MoveList.to(move));
+		int gain = victim == null ? (ChessMove.isCapture(move) ? Evaluation.value(PieceType.PAWN) : 0)
+				: Evaluation.value(victim.getType());
+		PieceType promotion = ChessMove.promotion(move);
+		if (promotion != null) {
+			gain += Evaluation.value(promotion);
+		}
+		return gain * 16 - match.getPiece(MoveList.from(move)).getType().ordinal();
+	}
+
+	/* swaps the best scored of the remaining moves into place i; a cut-off usually comes
+	 * early, so sorting the whole list would be wasted */
+	private int next(MoveList moves, int ply, int i) {
+		int[] s = order[ply];
+		int best = i;
+		for (int j = i + 1; j < moves.size(); j++) {
+			if (s[j] > s[best]) {
+				best = j;
+			}
+		}
+		if (best != i) {
+			int move = moves.get(i);
+			moves.set(i, moves.get(best));
+			moves.set(best, move);
+			int t = s[i];
+			s[i] = s[best];
+			s[best] = t;
+		}
+		return moves.get(i);
+	}
+
+	/*** Mate scores are stored relative to the node, not the root ***/
+	private static int toTable(int score, int ply) {
+		return score >= MATE - MAX_PLY ? score + ply : score <= -MATE + MAX_PLY ? score - ply : score;
+	}
+
+	private static int fromTable(int score, int ply) {
+		return score >= MATE - MAX_PLY ? score - ply : score <= -MATE + MAX_PLY ? score + ply : score;
+	}
+}
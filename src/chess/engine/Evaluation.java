@@ -0,0 +1,28 @@
+package chess.engine;
+
+import chess.ChessMatch;
+import chess.Color;
+import chess.PieceSquare;
+import chess.PieceType;
+
+/* Static evaluation, in centipawns from the point of view of the side to move: the middle
+ * game and end game piece-square sums ChessMatch keeps, blended by the game phase. */
+public final class Evaluation {
+
+	/* indexed by PieceType.ordinal(), for move ordering */
+	private static final int[] VALUES = { 100, 320, 330, 500, 900, 0 };
+
+	private Evaluation() {
+	}
+
+	public static int value(PieceType type) {
+		return VALUES[type.ordinal()];
+	}
+
+	public static int evaluate(ChessMatch match) {
+		int phase = Math.min(match.getPhase(), PieceSquare.MAX_PHASE); // promotions may pass it
+		int score = (match.getMiddlegameScore() * phase
+				+ match.getEndgameScore() * (PieceSquare.MAX_PHASE - phase)) / PieceSquare.MAX_PHASE;
+		return match.getCurrentPlayer() == Color.WHITE ? score : -score;
+	}
+}
@@ -0,0 +1,157 @@
+package chess.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import chess.ChessMatch;
+import chess.ChessMove;
+
+/* Searches one position on several threads ("Lazy SMP"). Helper threads run their own
+ * Engine on a copy of the match, starting at staggered depths, and only talk to the
+ * main search through the shared transposition table: the entries they leave make the
+ * main search cut off and order moves sooner. The move played is the main search's. */
+public class LazySmp {
+
+	private final TranspositionTable table;
+	private final Engine main;
+	private final Engine[] helpers;
+	private final ExecutorService pool;
+	private long nodes;
+
+	/* maxThreads counts the calling thread, which runs the main search */
+	public LazySmp(TranspositionTable table, int maxThreads) {
+		if (maxThreads < 1) {
+			throw new IllegalArgumentException("Lazy SMP needs at least 1 thread.");
+		}
+		this.table = table;
+		this.main = new Engine(table);
+		this.helpers = new Engine[maxThreads - 1];
+		for (int i = 0; i < helpers.length; i++) {
+			helpers[i] = new Engine(table);
+			helpers[i].setTimeLimit(0); // helpers run until the main search ends
+		}
+		this.pool = Executors.newFixedThreadPool(Math.max(1, helpers.length), r -> {
+			Thread t = new Thread(r, "lazy-smp-helper");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/*** Limits of the main search ***/
+	public void setTimeLimit(long millis) {
+		main.setTimeLimit(millis);
+	}
+	public void setNodeLimit(long nodes) {
+		main.setNodeLimit(nodes);
+	}
+	public void setBook(OpeningBook book) {
+		main.setBook(book);
+	}
+	public void setTablebase(Tablebase tablebase) {
+		main.setTablebase(tablebase);
+		for (Engine helper : helpers) {
+			helper.setTablebase(tablebase);
+		}
+	}
+	public void setMaxDepth(int depth) {
+		main.setMaxDepth(depth);
+		for (Engine helper : helpers) {
+			helper.setMaxDepth(depth);
+		}
+	}
+
+	/*** Last search ***/
+	public int getScore() {
+		return main.getScore();
+	}
+	public int getDepth() {
+		return main.getDepth();
+	}
+	/* nodes of all threads */
+	public long getNodes() {
+		return nodes;
+	}
+	public int getMaxThreads() {
+		return helpers.length + 1;
+	}
+
+	/*** Search ***/
+	public int bestMove(ChessMatch match) {
+		return bestMove(match, getMaxThreads());
+	}
+
+	/* the best move for the current player on the given number of threads, or 0 if there is none */
+	public int bestMove(ChessMatch match, int threads) {
+		if (threads < 1 || threads > getMaxThreads()) {
+			throw new IllegalArgumentException("Threads must be from 1 to " + getMaxThreads() + ".");
+		}
+		int move = main.bookMove(match);
+		if (move != 0) {
+			nodes = 0;
+			return move;
+		}
+		table.newSearch();
+		List<Future<?>> running = new ArrayList<>(threads - 1);
+		for (int i = 0; i < threads - 1; i++) {
+			Engine helper = helpers[i];
+			ChessMatch copy = new ChessMatch(match);
+			int firstDepth = 2 + i % 2; // half the helpers one ply ahead of the other half
+			helper.clearStop();
+			running.add(pool.submit(() -> helper.iterate(copy, firstDepth)));
+		}
+
+		main.clearStop();
+		int best;
+		try {
+			best = main.iterate(match, 1);
+		} finally {
+			for (int i = 0; i < threads - 1; i++) {
+				helpers[i].stop();
+			}
+			nodes = main.getNodes();
+			for (int i = 0; i < running.size(); i++) {
+				await(running.get(i));
+				nodes += helpers[i].getNodes();
+			}
+		}
+		return best;
+	}
+
+	/* stops the helper threads for good */
+	public void shutdown() {
+		pool.shutdownNow();
+	}
+
+	private static void await(Future<?> future) {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Helper search failed.", e.getCause());
+		}
+	}
+
+	/* usage: LazySmp [ms] [threads] */
+	public static void main(String[] args) {
+		long millis = args.length > 0 ? Long.parseLong(args[0]) : 5000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		LazySmp smp = new LazySmp(new TranspositionTable(256, ReplacementPolicy.DEPTH_PREFERRED), threads);
+		smp.setTimeLimit(millis);
+
+		long start = System.nanoTime();
+		int move = smp.bestMove(new ChessMatch());
+		long elapsed = System.nanoTime() - start;
+		smp.shutdown();
+
+		System.out.println("Best move: " + ChessMove.toString(move));
+		System.out.println("Score: " + smp.getScore() + ", depth: " + smp.getDepth());
+		System.out.println("Threads: " + threads);
+		System.out.println("Nodes: " + smp.getNodes());
+		System.out.printf("Nodes/s: %.0f%n", smp.getNodes() / (elapsed / 1e9));
+	}
+}
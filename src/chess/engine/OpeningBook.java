@@ -0,0 +1,132 @@
+package chess.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import boardgame.MoveList;
+import chess.ChessMatch;
+import chess.exceptions.ChessException;
+import chess.io.GameRecord;
+
+/* Book of opening moves, mapped from a file and searched in place:
+ *   MAGIC (int), entries (int), then per entry
+ *   position key (long), move (GameRecord 16-bit, unsigned short), weight (unsigned short)
+ * sorted by key, so the moves of a position lie together and a binary search finds them.
+ * OpeningBookBuilder writes these files. The buffer is only read at absolute offsets and
+ * every probe decodes into a list of its caller, so one book can serve many threads. */
+public class OpeningBook implements Closeable {
+
+	static final int MAGIC = 0x43424B31; // "CBK1"
+	static final int HEADER = 8;
+	static final int ENTRY = 12;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final int entries;
+
+	public OpeningBook(Path file) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		if (channel.size() > Integer.MAX_VALUE) {
+			channel.close();
+			throw new IOException("Opening book over 2 GB: " + file);
+		}
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		if (buffer.limit() < HEADER || buffer.getInt(0) != MAGIC
+				|| HEADER + (long) buffer.getInt(4) * ENTRY != buffer.limit()) {
+			channel.close();
+			throw new IOException("Not an opening book: " + file);
+		}
+		entries = buffer.getInt(4);
+	}
+
+	public int getEntries() {
+		return entries;
+	}
+
+	/* the book move with the most weight for the current player, or 0 if the position is not in the book */
+	public int bestMove(ChessMatch match) {
+		return bestMove(match, new MoveList());
+	}
+
+	/* as bestMove(ChessMatch), decoding the moves into the caller's list */
+	public int bestMove(ChessMatch match, MoveList scratch) {
+		int i = first(match.getPositionKey());
+		int best = 0;
+		int bestWeight = -1;
+		for (; i < entries && key(i) == match.getPositionKey(); i++) {
+			int move = legal(match, i, scratch);
+			if (move != 0 && weight(i) > bestWeight) {
+				best = move;
+				bestWeight = weight(i);
+			}
+		}
+		return best;
+	}
+
+	/* a book move drawn with chances in proportion to the weights, or 0 */
+	public int randomMove(ChessMatch match, Random random) {
+		return randomMove(match, random, new MoveList());
+	}
+
+	public int randomMove(ChessMatch match, Random random, MoveList scratch) {
+		long key = match.getPositionKey();
+		int start = first(key);
+		int total = 0;
+		for (int i = start; i < entries && key(i) == key; i++) {
+			total += weight(i);
+		}
+		if (total == 0) {
+			return bestMove(match, scratch);
+		}
+		int pick = random.nextInt(total);
+		for (int i = start; i < entries && key(i) == key; i++) {
+			pick -= weight(i);
+			if (pick < 0) {
+				return legal(match, i, scratch);
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/* index of the first entry with the key, or of the first greater one */
+	private int first(long key) {
+		int lo = 0;
+		int hi = entries;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (key(mid) < key) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private long key(int i) {
+		return buffer.getLong(HEADER + i * ENTRY);
+	}
+
+	private int weight(int i) {
+		return Short.toUnsignedInt(buffer.getShort(HEADER + i * ENTRY + 10));
+	}
+
+	/* the entry's move among the legal ones, 0 if a key collision made it illegal here */
+	private int legal(ChessMatch match, int i, MoveList scratch) {
+		try {
+			return GameRecord.decode(match, Short.toUnsignedInt(buffer.getShort(HEADER + i * ENTRY + 8)), scratch);
+		} catch (ChessException e) {
+			return 0;
+		}
+	}
+}
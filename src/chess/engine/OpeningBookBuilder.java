@@ -0,0 +1,104 @@
+package chess.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import boardgame.MoveList;
+import chess.ChessMatch;
+import chess.Color;
+import chess.io.GameRecord;
+import chess.io.GameRecordReader;
+
+/* Collects the opening moves of finished games and writes them as an OpeningBook.
+ * A move weighs 2 for each game its side won, 1 for each draw and 0 for each loss, so
+ * moves that only ever lost are left out. */
+public class OpeningBookBuilder {
+
+	private final int plies;
+	private final Map<Long, Map<Integer, Integer>> weights = new HashMap<>();
+	private final MoveList scratch = new MoveList();
+	private long games;
+
+	/* plies: how deep into each game the book goes */
+	public OpeningBookBuilder(int plies) {
+		this.plies = plies;
+	}
+
+	public long getGames() {
+		return games;
+	}
+
+	/* every game of a GameRecord file, unfinished ones left out */
+	public void addGames(GameRecordReader reader) {
+		while (reader.next()) {
+			int result = reader.getResult();
+			if (result == GameRecord.UNFINISHED) {
+				continue;
+			}
+			String fen = reader.getFen();
+			ChessMatch match = fen != null ? new ChessMatch(fen) : new ChessMatch();
+			int n = Math.min(plies, reader.getPlies());
+			for (int i = 0; i < n; i++) {
+				int record = reader.getMove(i);
+				int points = result == GameRecord.DRAW ? 1
+						: (result == GameRecord.WHITE_WINS) == (match.getCurrentPlayer() == Color.WHITE) ? 2 : 0;
+				weights.computeIfAbsent(match.getPositionKey(), k -> new HashMap<>()).merge(record, points, Integer::sum);
+				match.makeMove(GameRecord.decode(match, record, scratch));
+			}
+			games++;
+		}
+	}
+
+	/* returns the number of entries written */
+	public int write(Path file) throws IOException {
+		long[] keys = new long[weights.size()];
+		int k = 0;
+		for (long key : weights.keySet()) {
+			keys[k++] = key;
+		}
+		Arrays.sort(keys);
+		int entries = 0;
+		for (long key : keys) {
+			for (int weight : weights.get(key).values()) {
+				if (weight > 0) {
+					entries++;
+				}
+			}
+		}
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+			out.writeInt(OpeningBook.MAGIC);
+			out.writeInt(entries);
+			for (long key : keys) {
+				for (Map.Entry<Integer, Integer> e : weights.get(key).entrySet()) {
+					if (e.getValue() > 0) {
+						out.writeLong(key);
+						out.writeShort(e.getKey());
+						out.writeShort(Math.min(e.getValue(), 0xFFFF));
+					}
+				}
+			}
+		}
+		return entries;
+	}
+
+	/* usage: OpeningBookBuilder games.cgr book.bin [plies] */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("usage: OpeningBookBuilder games.cgr book.bin [plies]");
+			return;
+		}
+		OpeningBookBuilder builder = new OpeningBookBuilder(args.length > 2 ? Integer.parseInt(args[2]) : 20);
+		try (GameRecordReader reader = new GameRecordReader(Paths.get(args[0]))) {
+			builder.addGames(reader);
+		}
+		int entries = builder.write(Paths.get(args[1]));
+		System.out.println("Games: " + builder.getGames() + ", entries: " + entries);
+	}
+}
@@ -0,0 +1,151 @@
+package chess.engine;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import boardgame.MoveList;
+import chess.ChessMatch;
+import chess.ChessMove;
+
+/* Walks the move tree on a ForkJoinPool. The first splitDepth plies fork one task per
+ * move, each on its own copy of the match; below that a task walks its subtree alone.
+ * Idle workers steal the subtrees still queued, so the load evens out across cores. */
+public class ParallelPerft {
+
+	private final ForkJoinPool pool;
+	private final int splitDepth;
+
+	public ParallelPerft(ForkJoinPool pool, int splitDepth) {
+		if (splitDepth < 1) {
+			throw new IllegalArgumentException("Split depth must be at least 1.");
+		}
+		this.pool = pool;
+		this.splitDepth = splitDepth;
+	}
+
+	public long count(ChessMatch match, int depth) {
+		return pool.invoke(new Walk(new ChessMatch(match), depth, splitDepth, false)).nodes;
+	}
+
+	/* leaf counts per root move, in coordinate notation */
+	public Map<String, Long> divide(ChessMatch match, int depth) {
+		Map<String, Long> result = new LinkedHashMap<>();
+		if (depth < 1) {
+			return result;
+		}
+		MoveList moves = new MoveList();
+		match.legalMoves(moves);
+		List<Walk> tasks = new ArrayList<>();
+		for (int i = 0; i < moves.size(); i++) {
+			ChessMatch child = new ChessMatch(match);
+			child.makeMove(moves.get(i));
+			tasks.add(new Walk(child, depth - 1, splitDepth - 1, false));
+		}
+		for (Walk task : tasks) {
+			pool.execute(task);
+		}
+		for (int i = 0; i < tasks.size(); i++) {
+			result.put(ChessMove.toString(moves.get(i)), tasks.get(i).join().nodes);
+		}
+		return result;
+	}
+
+	/* captures, en passant, castles, promotions, checks and mates among the leaves */
+	public TreeStatistics statistics(ChessMatch match, int depth) {
+		return pool.invoke(new Walk(new ChessMatch(match), depth, splitDepth, true));
+	}
+
+	private static class Walk extends RecursiveTask<TreeStatistics> {
+		private static final long serialVersionUID = 1L;
+
+		private final ChessMatch match; // owned by this task
+		private final int depth;
+		private final int splitsLeft;
+		private final boolean statistics;
+
+		Walk(ChessMatch match, int depth, int splitsLeft, boolean statistics) {
+			this.match = match;
+			this.depth = depth;
+			this.splitsLeft = splitsLeft;
+			this.statistics = statistics;
+		}
+
+		@Override
+		protected TreeStatistics compute() {
+			if (splitsLeft <= 0 || depth <= 2) {
+				TreeStatistics result = new TreeStatistics();
+				if (statistics) {
+					MoveList[] lists = new MoveList[depth + 1];
+					for (int i = 0; i < lists.length; i++) {
+						lists[i] = new MoveList();
+					}
+					walk(result, depth, lists);
+				} else {
+					result.nodes = new Perft(match, Perft.Generator.LEGAL).count(depth);
+				}
+				return result;
+			}
+
+			MoveList moves = new MoveList();
+			match.legalMoves(moves);
+			List<Walk> children = new ArrayList<>(moves.size());
+			for (int i = 0; i < moves.size(); i++) {
+				ChessMatch child = new ChessMatch(match);
+				child.makeMove(moves.get(i));
+				children.add(new Walk(child, depth - 1, splitsLeft - 1, statistics));
+			}
+			invokeAll(children);
+			TreeStatistics result = new TreeStatistics();
+			for (Walk child : children) {
+				result.add(child.join());
+			}
+			return result;
+		}
+
+		private void walk(TreeStatistics result, int depth, MoveList[] lists) {
+			if (depth == 0) {
+				result.nodes++;
+				return;
+			}
+			MoveList moves = lists[depth];
+			match.legalMoves(moves);
+			for (int i = 0; i < moves.size(); i++) {
+				int move = moves.get(i);
+				match.makeMove(move);
+				if (depth == 1) {
+					result.count(move, match, lists[0]);
+				}
+				walk(result, depth - 1, lists);
+				match.undoMove();
+			}
+		}
+	}
+
+	/* usage: ParallelPerft [depth] [threads] [split depth] [FEN] */
+	public static void main(String[] args) {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int split = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+		ForkJoinPool pool = new ForkJoinPool(threads);
+
+		long start = System.nanoTime();
+		Map<String, Long> divide = new ParallelPerft(pool, split).divide(new ChessMatch(Perft.fen(args, 3)), depth);
+		long elapsed = System.nanoTime() - start;
+		pool.shutdown();
+
+		long total = 0;
+		for (Map.Entry<String, Long> e : divide.entrySet()) {
+			System.out.println(e.getKey() + ": " + e.getValue());
+			total += e.getValue();
+		}
+		System.out.println();
+		System.out.println("Nodes: " + total);
+		System.out.println("Threads: " + threads + ", split depth: " + split);
+		System.out.printf("Time: %.3f s%n", elapsed / 1e9);
+		System.out.printf("Nodes/s: %.0f%n", total / (elapsed / 1e9));
+	}
+}
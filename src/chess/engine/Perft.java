@@ -0,0 +1,126 @@
+package chess.engine;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import boardgame.MoveList;
+import chess.ChessMatch;
+import chess.ChessMove;
+import chess.Color;
+
+/* Counts the leaf nodes of the move tree to a fixed depth ("perft"). The counts of
+ * standard positions are well known, so they check the move generation, and the
+ * nodes per second measure it. */
+public class Perft {
+
+	public enum Generator {
+		/* Piece.possibleMoves of every piece, dropping the moves that leave the king in check */
+		PIECES,
+		/* ChessMatch.legalMoves */
+		LEGAL;
+	}
+
+	private final ChessMatch match;
+	private final Generator generator;
+	private MoveList[] lists = new MoveList[0]; // one per ply, reused
+
+	public Perft(ChessMatch match, Generator generator) {
+		this.match = match;
+		this.generator = generator;
+	}
+
+	public long count(int depth) {
+		ensureLists(depth);
+		return perft(depth, 0);
+	}
+
+	/* nodes below each root move, in coordinate notation */
+	public Map<String, Long> divide(int depth) {
+		ensureLists(depth);
+		Map<String, Long> result = new LinkedHashMap<>();
+		if (depth < 1) {
+			return result;
+		}
+		MoveList moves = lists[0];
+		generate(moves);
+		Color us = match.getCurrentPlayer();
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			match.makeMove(move);
+			if (generator == Generator.LEGAL || !match.isInCheck(us)) {
+				result.put(ChessMove.toString(move), perft(depth - 1, 1));
+			}
+			match.undoMove();
+		}
+		return result;
+	}
+
+	private long perft(int depth, int ply) {
+		if (depth == 0) {
+			return 1;
+		}
+		MoveList moves = lists[ply];
+		generate(moves);
+		if (generator == Generator.LEGAL && depth == 1) {
+			return moves.size(); // every legal move is a leaf
+		}
+		long nodes = 0;
+		Color us = match.getCurrentPlayer();
+		for (int i = 0; i < moves.size(); i++) {
+			match.makeMove(moves.get(i));
+			if (generator == Generator.LEGAL || !match.isInCheck(us)) {
+				nodes += perft(depth - 1, ply + 1);
+			}
+			match.undoMove();
+		}
+		return nodes;
+	}
+
+	private void generate(MoveList moves) {
+		if (generator == Generator.LEGAL) {
+			match.legalMoves(moves);
+		} else {
+			match.pseudoLegalMoves(moves);
+		}
+	}
+
+	private void ensureLists(int depth) {
+		if (lists.length < depth + 1) {
+			MoveList[] bigger = new MoveList[depth + 1];
+			for (int i = 0; i < bigger.length; i++) {
+				bigger[i] = i < lists.length ? lists[i] : new MoveList();
+			}
+			lists = bigger;
+		}
+	}
+
+	/* usage: Perft [depth] [legal|pieces] [FEN] */
+	public static void main(String[] args) {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		Generator generator = args.length > 1 ? Generator.valueOf(args[1].toUpperCase()) : Generator.LEGAL;
+		ChessMatch match = new ChessMatch(fen(args, 2));
+
+		long start = System.nanoTime();
+		Map<String, Long> divide = new Perft(match, generator).divide(depth);
+		long elapsed = System.nanoTime() - start;
+
+		long total = 0;
+		for (Map.Entry<String, Long> e : divide.entrySet()) {
+			System.out.println(e.getKey() + ": " + e.getValue());
+			total += e.getValue();
+		}
+		System.out.println();
+		System.out.println("Nodes: " + total);
+		System.out.printf("Time: %.3f s%n", elapsed / 1e9);
+		System.out.printf("Nodes/s: %.0f%n", total / (elapsed / 1e9));
+	}
+
+	/* the FEN given from args[from] on, split by the shell, or the starting position */
+	static String fen(String[] args, int from) {
+		if (args.length <= from) {
+			return ChessMatch.START_FEN;
+		}
+		return String.join(" ", Arrays.asList(args).subList(from, args.length));
+	}
+}
@@ -0,0 +1,81 @@
+package chess.engine;
+
+import boardgame.MoveList;
+import chess.ChessMatch;
+
+/* Self-check of the move generation and of the match state: the known perft counts of
+ * the standard test positions for both generators, FEN round trips, and a walk of the
+ * first plies of each position that undoes every move and expects the FEN and position
+ * key back, with the incremental key equal to the one of the same position loaded fresh.
+ * Prints the failures and exits with status 1 if there are any. */
+public class PerftCheck {
+
+	private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+	/* FEN, depth, leaf nodes */
+	private static final Object[][] POSITIONS = {
+			{ ChessMatch.START_FEN, 4, 197281L },
+			{ KIWIPETE, 3, 97862L },
+			{ "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 4, 43238L },
+			{ "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 3, 9467L },
+			{ "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 3, 62379L },
+			{ "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 3, 89890L },
+	};
+
+	private static final int WALK_DEPTH = 2; // plies of make/undo checked move by move
+
+	private int failures;
+
+	/* usage: PerftCheck */
+	public static void main(String[] args) {
+		PerftCheck check = new PerftCheck();
+		for (Object[] position : POSITIONS) {
+			check.position((String) position[0], (Integer) position[1], (Long) position[2]);
+		}
+		if (check.failures > 0) {
+			System.out.println(check.failures + " failures");
+			System.exit(1);
+		}
+		System.out.println("All checks passed");
+	}
+
+	private void position(String fen, int depth, long expected) {
+		System.out.println(fen);
+		ChessMatch match = new ChessMatch(fen);
+		expect("toFen", match.toFen(), fen);
+		for (Perft.Generator generator : Perft.Generator.values()) {
+			long nodes = new Perft(match, generator).count(depth);
+			expect("perft " + depth + " " + generator.name().toLowerCase(), nodes, expected);
+		}
+		expect("toFen after perft", match.toFen(), fen);
+		walk(match, WALK_DEPTH, new MoveList[] { new MoveList(), new MoveList(), new MoveList() }, 0);
+	}
+
+	private void walk(ChessMatch match, int depth, MoveList[] lists, int ply) {
+		if (depth == 0) {
+			return;
+		}
+		String fen = match.toFen();
+		long key = match.getPositionKey();
+		MoveList moves = lists[ply];
+		match.legalMoves(moves);
+		for (int i = 0; i < moves.size(); i++) {
+			match.makeMove(moves.get(i));
+			expect("key after a move in " + fen, match.getPositionKey(), new ChessMatch(match.toFen()).getPositionKey());
+			walk(match, depth - 1, lists, ply + 1);
+			match.undoMove();
+			if (!match.toFen().equals(fen) || match.getPositionKey() != key) {
+				expect("undo in " + fen, match.toFen(), fen);
+				expect("key after undo in " + fen, match.getPositionKey(), key);
+				return; // the rest of this walk starts from a broken position
+			}
+		}
+	}
+
+	private void expect(String what, Object actual, Object expected) {
+		if (!actual.equals(expected)) {
+			System.out.println("  FAILED " + what + ": " + actual + ", expected " + expected);
+			failures++;
+		}
+	}
+}
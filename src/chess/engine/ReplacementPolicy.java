@@ -0,0 +1,8 @@
+package chess.engine;
+
+public enum ReplacementPolicy {
+	/* keep the deeper result, unless it is left over from an older search */
+	DEPTH_PREFERRED,
+	/* the newest result always wins */
+	ALWAYS_REPLACE;
+}
@@ -0,0 +1,107 @@
+package chess.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import chess.ChessMatch;
+import chess.Color;
+import chess.PieceType;
+
+/* Probes the endgame tables TablebaseGenerator writes: king and queen, rook or pawn
+ * against a lone king. Each file is MAGIC, the piece type, then one byte per position at
+ *   index(side, strong king, weak king, piece) = ((side * 64 + strongKing) * 64 + weakKing) * 64 + piece
+ * with the strong side as white and side 0 when it is to move; positions with black as
+ * the strong side are looked up mirrored. A byte is, for the side to move:
+ *   0 draw, n > 0 mates in n plies, n < 0 is mated in -n - 1 plies, ILLEGAL no such position.
+ * Castling rights are not part of the tables. */
+public class Tablebase implements Closeable {
+
+	public static final int NONE = Integer.MIN_VALUE; // position not covered
+	public static final byte ILLEGAL = -128;
+
+	static final int MAGIC = 0x43544231; // "CTB1"
+	static final int HEADER = 8;
+	static final int SIZE = 2 * 64 * 64 * 64;
+	/* piece types with a table, in the order of the files */
+	static final PieceType[] TYPES = { PieceType.QUEEN, PieceType.ROOK, PieceType.PAWN };
+
+	private final FileChannel[] channels = new FileChannel[PieceType.values().length];
+	private final MappedByteBuffer[] tables = new MappedByteBuffer[PieceType.values().length];
+
+	/* maps the tables found in the directory */
+	public Tablebase(Path directory) throws IOException {
+		for (PieceType type : TYPES) {
+			Path file = directory.resolve(fileName(type));
+			if (!Files.exists(file)) {
+				continue;
+			}
+			FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+			MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (table.limit() != HEADER + SIZE || table.getInt(0) != MAGIC || table.getInt(4) != type.ordinal()) {
+				channel.close();
+				throw new IOException("Not a tablebase file: " + file);
+			}
+			channels[type.ordinal()] = channel;
+			tables[type.ordinal()] = table;
+		}
+	}
+
+	static String fileName(PieceType type) {
+		return "K" + (type == PieceType.KNIGHT ? "N" : type.name().substring(0, 1)) + "K.tb";
+	}
+
+	static int index(int side, int strongKing, int weakKing, int piece) {
+		return ((side * 64 + strongKing) * 64 + weakKing) * 64 + piece;
+	}
+
+	public boolean has(PieceType type) {
+		return tables[type.ordinal()] != null;
+	}
+
+	/* the value of the position for the side to move, or NONE; allocates nothing */
+	public int probe(ChessMatch match) {
+		if (Long.bitCount(match.getOccupied()) != 3) {
+			return NONE;
+		}
+		for (PieceType type : TYPES) {
+			MappedByteBuffer table = tables[type.ordinal()];
+			if (table == null) {
+				continue;
+			}
+			for (int c = 0; c < 2; c++) {
+				Color strong = c == 0 ? Color.WHITE : Color.BLACK;
+				long piece = match.getBitboard(strong, type);
+				if (piece == 0) {
+					continue;
+				}
+				Color weak = c == 0 ? Color.BLACK : Color.WHITE;
+				int flip = strong == Color.WHITE ? 0 : 56; // mirrors black onto white
+				int index = index(match.getCurrentPlayer() == strong ? 0 : 1,
+						Long.numberOfTrailingZeros(match.getBitboard(strong, PieceType.KING)) ^ flip,
+						Long.numberOfTrailingZeros(match.getBitboard(weak, PieceType.KING)) ^ flip,
+						Long.numberOfTrailingZeros(piece) ^ flip);
+				return table.get(HEADER + index);
+			}
+		}
+		return NONE;
+	}
+
+	/* plies to the mate of a won or lost value */
+	public static int pliesToMate(int value) {
+		return value > 0 ? value : -value - 1;
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (FileChannel channel : channels) {
+			if (channel != null) {
+				channel.close();
+			}
+		}
+	}
+}
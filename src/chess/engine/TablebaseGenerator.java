@@ -0,0 +1,256 @@
+package chess.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import boardgame.MoveList;
+import chess.ChessMatch;
+import chess.ChessMove;
+import chess.PieceType;
+import chess.exceptions.ChessException;
+
+/* Builds the Tablebase files by retrograde analysis. Every index is set up as a ChessMatch,
+ * so the positions and moves are the ones the game allows, then the values are filled in
+ * from the mates backwards: at ply n a position is won if a move reaches one lost in n - 1,
+ * and lost if every move reaches one won in less than n. What is left undecided is a draw.
+ * A pawn that promotes leaves the table for the queen or rook one, which must be generated
+ * first; both the setup and each ply run in parallel over the positions. */
+public class TablebaseGenerator {
+
+	private static final byte UNKNOWN = Byte.MAX_VALUE; // while generating
+	private static final int[] NO_CHILDREN = new int[0];
+
+	private final Map<PieceType, byte[]> tables = new EnumMap<>(PieceType.class);
+
+	/* the values of a table, generating it (and the ones it leads to) if needed */
+	public byte[] generate(PieceType type) {
+		byte[] values = tables.get(type);
+		if (values == null) {
+			if (type == PieceType.PAWN) {
+				generate(PieceType.QUEEN);
+				generate(PieceType.ROOK);
+			}
+			values = new Table(type).solve();
+			tables.put(type, values);
+		}
+		return values;
+	}
+
+	public void write(PieceType type, Path directory) throws IOException {
+		byte[] values = generate(type);
+		Path file = directory.resolve(Tablebase.fileName(type));
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+			out.writeInt(Tablebase.MAGIC);
+			out.writeInt(type.ordinal());
+			out.write(values);
+		}
+	}
+
+	/* the longest mate of a table, in plies */
+	public static int longestMate(byte[] values) {
+		int longest = 0;
+		for (byte v : values) {
+			if (v != Tablebase.ILLEGAL && v != 0) {
+				longest = Math.max(longest, Tablebase.pliesToMate(v));
+			}
+		}
+		return longest;
+	}
+
+	private class Table {
+		private final PieceType type;
+		private final byte[] values = new byte[Tablebase.SIZE];
+		private final int[][] children = new int[Tablebase.SIZE][];
+		/* values of the moves out of the table, for the side to move: the quickest win
+		 * they give (0 if none) and, if every one of them loses, the slowest loss in plies
+		 * (0 if there are none, -1 if one of them does not lose) */
+		private final byte[] leavingWin = new byte[Tablebase.SIZE];
+		private final byte[] leavingLoss = new byte[Tablebase.SIZE];
+
+		Table(PieceType type) {
+			this.type = type;
+		}
+
+		byte[] solve() {
+			IntStream.range(0, Tablebase.SIZE).parallel().forEach(this::setUp);
+
+			int last = 0; // no position can be decided before the moves leaving the table
+			for (int i = 0; i < Tablebase.SIZE; i++) {
+				last = Math.max(last, Math.max(leavingWin[i], leavingLoss[i]));
+			}
+			AtomicBoolean changed = new AtomicBoolean();
+			int quiet = 0;
+			for (int n = 1; quiet < 2 || n <= last + 2; n++) {
+				changed.set(false);
+				int ply = n;
+				IntStream.range(0, Tablebase.SIZE).parallel().forEach(i -> {
+					if (values[i] == UNKNOWN && (ply % 2 == 1 ? wins(i, ply) : loses(i, ply))) {
+						values[i] = (byte) (ply % 2 == 1 ? ply : -ply - 1);
+						changed.set(true);
+					}
+				});
+				quiet = changed.get() ? 0 : quiet + 1;
+			}
+			for (int i = 0; i < Tablebase.SIZE; i++) {
+				if (values[i] == UNKNOWN) {
+					values[i] = 0;
+				}
+			}
+			return values;
+		}
+
+		/* a move reaches a position lost in ply - 1 plies; only losses in ply - 1 were set
+		 * at the last ply, and this ply writes wins only */
+		private boolean wins(int i, int ply) {
+			if (leavingWin[i] == ply) {
+				return true;
+			}
+			for (int child : children[i]) {
+				if (values[child] == -ply) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/* every move reaches a position won in less than ply plies, so the side to move
+		 * is mated in ply */
+		private boolean loses(int i, int ply) {
+			if (leavingLoss[i] < 0 || leavingLoss[i] > ply) {
+				return false;
+			}
+			for (int child : children[i]) {
+				byte v = values[child];
+				if (v == UNKNOWN || v <= 0 || v >= ply) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void setUp(int index) {
+			children[index] = NO_CHILDREN;
+			int side = index >> 18;
+			int strongKing = index >> 12 & 63;
+			int weakKing = index >> 6 & 63;
+			int piece = index & 63;
+			ChessMatch match = match(side, strongKing, weakKing, piece);
+			if (match == null) {
+				values[index] = Tablebase.ILLEGAL;
+				return;
+			}
+			MoveList moves = new MoveList();
+			match.legalMoves(moves);
+			if (moves.size() == 0) {
+				values[index] = (byte) (match.getCheck() ? -1 : 0); // mated or stalemated
+				return;
+			}
+			values[index] = UNKNOWN;
+
+			int[] next = new int[moves.size()];
+			int n = 0;
+			int win = 0;
+			int loss = 0;
+			for (int k = 0; k < moves.size(); k++) {
+				int move = moves.get(k);
+				int from = MoveList.from(move);
+				int to = MoveList.to(move);
+				int leaving; // value of a position out of the table, for the side moving next
+				if (ChessMove.isCapture(move)) {
+					leaving = 0; // the lone kings draw
+				} else if (ChessMove.promotion(move) != null) {
+					byte[] table = tables.get(ChessMove.promotion(move));
+					leaving = table == null ? 0 : table[Tablebase.index(1, strongKing, weakKing, to)];
+				} else {
+					next[n++] = Tablebase.index(1 - side,
+							from == strongKing ? to : strongKing,
+							from == weakKing ? to : weakKing,
+							from == piece ? to : piece);
+					continue;
+				}
+				if (leaving < 0) {
+					int plies = -leaving; // mated in -leaving - 1 after this move
+					win = win == 0 ? plies : Math.min(win, plies);
+					loss = -1;
+				} else if (leaving == 0) {
+					loss = -1;
+				} else if (loss >= 0) {
+					loss = Math.max(loss, leaving + 1);
+				}
+			}
+			children[index] = n == next.length ? next : Arrays.copyOf(next, n);
+			leavingWin[index] = (byte) win;
+			leavingLoss[index] = (byte) loss;
+		}
+
+		/* the position of an index, or null if it cannot happen */
+		private ChessMatch match(int side, int strongKing, int weakKing, int piece) {
+			if (strongKing == weakKing || piece == strongKing || piece == weakKing
+					|| type == PieceType.PAWN && (piece < 8 || piece >= 56)) {
+				return null;
+			}
+			char[] squares = new char[64];
+			squares[strongKing] = 'K';
+			squares[weakKing] = 'k';
+			squares[piece] = type == PieceType.KNIGHT ? 'N' : type.name().charAt(0);
+			StringBuilder fen = new StringBuilder(40);
+			for (int row = 0; row < 8; row++) {
+				int empty = 0;
+				for (int col = 0; col < 8; col++) {
+					char c = squares[row * 8 + col];
+					if (c == 0) {
+						empty++;
+						continue;
+					}
+					if (empty > 0) {
+						fen.append(empty);
+						empty = 0;
+					}
+					fen.append(c);
+				}
+				if (empty > 0) {
+					fen.append(empty);
+				}
+				if (row < 7) {
+					fen.append('/');
+				}
+			}
+			fen.append(side == 0 ? " w - -" : " b - -");
+			try {
+				return new ChessMatch(fen.toString());
+			} catch (ChessException e) {
+				return null; // the side to move could take the king
+			}
+		}
+	}
+
+	/* usage: TablebaseGenerator directory [Q|R|P ...] - the tables to write, all by default */
+	public static void main(String[] args) throws IOException {
+		Path directory = Paths.get(args.length > 0 ? args[0] : ".");
+		Files.createDirectories(directory);
+		TablebaseGenerator generator = new TablebaseGenerator();
+		for (PieceType type : Tablebase.TYPES) {
+			String letter = type.name().substring(0, 1);
+			boolean wanted = args.length <= 1;
+			for (int i = 1; i < args.length; i++) {
+				wanted |= args[i].equalsIgnoreCase(letter);
+			}
+			if (!wanted) {
+				continue;
+			}
+			long start = System.nanoTime();
+			generator.write(type, directory);
+			System.out.printf("%s: longest mate %d plies, %.1f s%n", Tablebase.fileName(type),
+					longestMate(generator.generate(type)), (System.nanoTime() - start) / 1e9);
+		}
+	}
+}
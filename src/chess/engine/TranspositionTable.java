@@ -0,0 +1,135 @@
+package chess.engine;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.LongAdder;
+
+/* Fixed-size table of search results keyed by ChessMatch.getPositionKey(), safe to share
+ * between threads without locks.
+ * Each entry is two longs: (key ^ data) and data. A reader only accepts an entry when
+ * both halves XOR back to its key, so an entry torn by two threads writing at once
+ * just reads as a miss. */
+public class TranspositionTable {
+
+	/* bounds of a stored score */
+	public static final int EXACT = 1;
+	public static final int LOWER = 2; // failed high: score >= stored
+	public static final int UPPER = 3; // failed low: score <= stored
+
+	public static final long MISS = 0L;
+
+	private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+	private final long[] table;
+	private final int mask;
+	private final ReplacementPolicy policy;
+	private volatile int generation;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder collisions = new LongAdder();
+
+	public TranspositionTable(int sizeMb, ReplacementPolicy policy) {
+		if (sizeMb < 1) {
+			throw new IllegalArgumentException("Transposition table needs at least 1 MB.");
+		}
+		long entries = Long.highestOneBit(sizeMb * 1024L * 1024L / 16);
+		if (entries > 1 << 29) {
+			entries = 1 << 29; // keeps the long array under the maximum array length
+		}
+		this.table = new long[(int) entries * 2];
+		this.mask = (int) entries - 1;
+		this.policy = policy;
+	}
+
+	/*** Data word: move (24 bits), score (16), depth (8), bound (2), generation (8) ***/
+	public static int move(long data) {
+		return (int) (data & 0xFFFFFF);
+	}
+	public static int score(long data) {
+		return (short) (data >>> 24);
+	}
+	public static int depth(long data) {
+		return (int) (data >>> 40 & 0xFF);
+	}
+	public static int bound(long data) {
+		return (int) (data >>> 48 & 0x3);
+	}
+	private static int generation(long data) {
+		return (int) (data >>> 50 & 0xFF);
+	}
+
+	/*** Functions ***/
+	/* the data stored for the key, or MISS */
+	public long probe(long key) {
+		int i = index(key);
+		long check = (long) SLOTS.getOpaque(table, i);
+		long data = (long) SLOTS.getOpaque(table, i + 1);
+		if (data != 0 && (check ^ data) == key) {
+			hits.increment();
+			return data;
+		}
+		if (data != 0) {
+			collisions.increment(); // slot holds another position
+		}
+		misses.increment();
+		return MISS;
+	}
+
+	public void store(long key, int move, int score, int depth, int bound) {
+		int i = index(key);
+		int gen = generation;
+		long oldCheck = (long) SLOTS.getOpaque(table, i);
+		long oldData = (long) SLOTS.getOpaque(table, i + 1);
+		boolean samePosition = (oldCheck ^ oldData) == key;
+		if (policy == ReplacementPolicy.DEPTH_PREFERRED && oldData != 0 && !samePosition
+				&& generation(oldData) == gen && depth(oldData) > depth) {
+			return; // a deeper result of this search stays
+		}
+		if (samePosition && move == 0) {
+			move = move(oldData); // keeps the best move known for the position
+		}
+		long data = (move & 0xFFFFFFL)
+				| (score & 0xFFFFL) << 24
+				| (long) Math.min(Math.max(depth, 0), 0xFF) << 40
+				| (long) bound << 48
+				| (long) gen << 50;
+		SLOTS.setOpaque(table, i, key ^ data);
+		SLOTS.setOpaque(table, i + 1, data);
+	}
+
+	/* ages the entries, so DEPTH_PREFERRED lets the next search replace them */
+	public void newSearch() {
+		generation = (generation + 1) & 0xFF;
+	}
+
+	public void clear() {
+		for (int i = 0; i < table.length; i++) {
+			SLOTS.setOpaque(table, i, 0L);
+		}
+		hits.reset();
+		misses.reset();
+		collisions.reset();
+	}
+
+	private int index(long key) {
+		return ((int) key & mask) << 1;
+	}
+
+	/*** Statistics ***/
+	public int getEntries() {
+		return mask + 1;
+	}
+	public ReplacementPolicy getPolicy() {
+		return policy;
+	}
+	public long getHits() {
+		return hits.sum();
+	}
+	public long getMisses() {
+		return misses.sum();
+	}
+	public long getCollisions() {
+		return collisions.sum();
+	}
+}
@@ -0,0 +1,77 @@
+package chess.engine;
+
+import boardgame.MoveList;
+import chess.ChessMatch;
+import chess.ChessMove;
+
+/* Counts over the leaves of a move tree, as in the usual perft tables. */
+public class TreeStatistics {
+	long nodes;
+	long captures;
+	long enPassant;
+	long castles;
+	long promotions;
+	long checks;
+	long checkMates;
+
+	public long getNodes() {
+		return nodes;
+	}
+	public long getCaptures() {
+		return captures;
+	}
+	public long getEnPassant() {
+		return enPassant;
+	}
+	public long getCastles() {
+		return castles;
+	}
+	public long getPromotions() {
+		return promotions;
+	}
+	public long getChecks() {
+		return checks;
+	}
+	public long getCheckMates() {
+		return checkMates;
+	}
+
+	/* the move that led to a leaf, with the match already past it */
+	void count(int move, ChessMatch match, MoveList scratch) {
+		if (ChessMove.isCapture(move)) {
+			captures++;
+		}
+		if (ChessMove.is(move, ChessMove.EN_PASSANT)) {
+			enPassant++;
+		}
+		if (ChessMove.is(move, ChessMove.CASTLING)) {
+			castles++;
+		}
+		if (ChessMove.promotion(move) != null) {
+			promotions++;
+		}
+		if (match.getCheck()) {
+			checks++;
+			match.legalMoves(scratch);
+			if (scratch.size() == 0) {
+				checkMates++;
+			}
+		}
+	}
+
+	void add(TreeStatistics other) {
+		nodes += other.nodes;
+		captures += other.captures;
+		enPassant += other.enPassant;
+		castles += other.castles;
+		promotions += other.promotions;
+		checks += other.checks;
+		checkMates += other.checkMates;
+	}
+
+	@Override
+	public String toString() {
+		return "nodes=" + nodes + ", captures=" + captures + ", enPassant=" + enPassant + ", castles=" + castles
+				+ ", promotions=" + promotions + ", checks=" + checks + ", checkMates=" + checkMates;
+	}
+}
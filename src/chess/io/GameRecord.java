@@ -0,0 +1,71 @@
+package chess.io;
+
+import boardgame.MoveList;
+import chess.ChessMatch;
+import chess.ChessMove;
+import chess.PieceType;
+import chess.exceptions.ChessException;
+
+/* Binary game records: a file starts with MAGIC, then each game is
+ *   plies (unsigned short), result (byte), flags (byte),
+ *   [FEN length (unsigned short), FEN (ASCII)] if flags has HAS_FEN,
+ *   one unsigned short per ply: from (6 bits), to (6 bits), promotion (3 bits).
+ * Big endian. The promotion is the PieceType ordinal, 0 for none; capture, castling and en
+ * passant are found again among the legal moves when the game is replayed. */
+public final class GameRecord {
+
+	public static final int MAGIC = 0x43475231; // "CGR1"
+
+	/* results */
+	public static final int UNFINISHED = 0;
+	public static final int WHITE_WINS = 1;
+	public static final int BLACK_WINS = 2;
+	public static final int DRAW = 3;
+
+	/* game flags */
+	static final int HAS_FEN = 1;
+
+	static final int MAX_PLIES = 0xFFFF;
+
+	private static final PieceType[] TYPES = PieceType.values();
+
+	private GameRecord() {
+	}
+
+	public static int encode(int move) {
+		PieceType promotion = ChessMove.promotion(move);
+		return MoveList.from(move) | MoveList.to(move) << 6 | (promotion == null ? 0 : promotion.ordinal()) << 12;
+	}
+
+	/* the legal move of the match a 16-bit move stands for; moves is a scratch list */
+	public static int decode(ChessMatch match, int record, MoveList moves) {
+		int from = record & 0x3F;
+		int to = record >>> 6 & 0x3F;
+		int promotion = record >>> 12 & 0x7;
+		match.legalMoves(moves);
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			PieceType type = ChessMove.promotion(move);
+			if (MoveList.from(move) == from && MoveList.to(move) == to
+					&& (type == null ? 0 : type.ordinal()) == promotion) {
+				return move;
+			}
+		}
+		throw new ChessException("Illegal move in record: " + ChessMove.squareName(from) + ChessMove.squareName(to)
+				+ (promotion == 0 ? "" : TYPES[promotion].name()));
+	}
+
+	/* the result of a PGN result tag or token */
+	public static int result(String pgn) {
+		if ("1-0".equals(pgn)) {
+			return WHITE_WINS;
+		}
+		if ("0-1".equals(pgn)) {
+			return BLACK_WINS;
+		}
+		if ("1/2-1/2".equals(pgn)) {
+			return DRAW;
+		}
+		return UNFINISHED;
+	}
+}
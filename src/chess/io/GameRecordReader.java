@@ -0,0 +1,164 @@
+package chess.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import boardgame.MoveList;
+import chess.ChessMatch;
+import chess.exceptions.ChessException;
+
+/* Walks a GameRecord file mapped into memory. The reader is a cursor over the games:
+ * next() moves to the following game and the getters read its header and moves straight
+ * from the mapping, so scanning copies nothing. replay() plays the current game into a
+ * ChessMatch. One mapping holds up to 2 GB; larger archives are split into files. */
+public class GameRecordReader implements Closeable {
+
+	private static final int HEADER = 4;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private int game = -1; // offset of the current game's header
+	private int next = 4; // offset of the next game's header
+	private int movesAt;
+	private int plies;
+	private final MoveList scratch = new MoveList();
+
+	public GameRecordReader(Path file) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		if (channel.size() > Integer.MAX_VALUE) {
+			channel.close();
+			throw new IOException("Game record file over 2 GB: " + file);
+		}
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		if (buffer.limit() < 4 || buffer.getInt(0) != GameRecord.MAGIC) {
+			channel.close();
+			throw new IOException("Not a game record file: " + file);
+		}
+	}
+
+	/* moves to the next game; false at the end of the file */
+	public boolean next() {
+		if (next + HEADER > buffer.limit()) {
+			return false;
+		}
+		game = next;
+		plies = Short.toUnsignedInt(buffer.getShort(game));
+		movesAt = game + HEADER;
+		if (hasFen()) {
+			checkAvailable(movesAt, 2); // the FEN length
+			movesAt += 2 + Short.toUnsignedInt(buffer.getShort(movesAt));
+			checkAvailable(movesAt, 0); // the FEN itself
+		}
+		checkAvailable(movesAt, 2 * plies);
+		next = movesAt + 2 * plies;
+		return true;
+	}
+
+	/* the record must hold bytes more bytes from offset; the absolute reads past the limit
+	 * would fail with a bare IndexOutOfBoundsException otherwise */
+	private void checkAvailable(int offset, int bytes) {
+		if (offset > buffer.limit() || buffer.limit() - offset < bytes) {
+			throw new ChessException("Truncated game record at offset " + game);
+		}
+	}
+
+	/* goes back to before the first game */
+	public void rewind() {
+		game = -1;
+		next = 4;
+	}
+
+	/* moves to the game at an offset given by getOffset() */
+	public void seek(int offset) {
+		next = offset;
+		if (!next()) {
+			throw new ChessException("No game at offset " + offset);
+		}
+	}
+
+	/*** Current game ***/
+	public int getOffset() {
+		return game;
+	}
+	public int getPlies() {
+		return plies;
+	}
+	public int getResult() {
+		return buffer.get(game + 2);
+	}
+	public boolean hasFen() {
+		return (buffer.get(game + 3) & GameRecord.HAS_FEN) != 0;
+	}
+	/* the starting position, or null for the standard one */
+	public String getFen() {
+		if (!hasFen()) {
+			return null;
+		}
+		byte[] fen = new byte[Short.toUnsignedInt(buffer.getShort(game + HEADER))];
+		for (int i = 0; i < fen.length; i++) {
+			fen[i] = buffer.get(game + HEADER + 2 + i);
+		}
+		return new String(fen, StandardCharsets.US_ASCII);
+	}
+	/* the 16-bit move of a ply, see GameRecord */
+	public int getMove(int ply) {
+		if (ply < 0 || ply >= plies) {
+			throw new IndexOutOfBoundsException("Invalid ply: " + ply);
+		}
+		return Short.toUnsignedInt(buffer.getShort(movesAt + 2 * ply));
+	}
+
+	/* the current game played into a new match */
+	public ChessMatch replay() {
+		return replay(plies);
+	}
+
+	/* the position after the first plies of the current game */
+	public ChessMatch replay(int plies) {
+		String fen = getFen();
+		ChessMatch match = fen != null ? new ChessMatch(fen) : new ChessMatch();
+		for (int i = 0; i < plies; i++) {
+			match.makeMove(GameRecord.decode(match, getMove(i), scratch));
+		}
+		return match;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/* usage: GameRecordReader games.cgr - scans the file, then replays every game */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("usage: GameRecordReader games.cgr");
+			return;
+		}
+		try (GameRecordReader reader = new GameRecordReader(Paths.get(args[0]))) {
+			long start = System.nanoTime();
+			long games = 0;
+			long plies = 0;
+			while (reader.next()) {
+				games++;
+				plies += reader.getPlies();
+			}
+			long scan = System.nanoTime() - start;
+			System.out.printf("Scan: %d games, %d plies in %.3f s (%.0f games/s)%n", games, plies, scan / 1e9,
+					games / (scan / 1e9));
+
+			reader.rewind();
+			start = System.nanoTime();
+			while (reader.next()) {
+				reader.replay();
+			}
+			long replay = System.nanoTime() - start;
+			System.out.printf("Replay: %.3f s (%.0f games/s)%n", replay / 1e9, games / (replay / 1e9));
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package chess.io;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import boardgame.MoveList;
+import boardgame.exceptions.BoardException;
+import chess.ChessMatch;
+
+/* Writes games in the GameRecord format. */
+public class GameRecordWriter implements Closeable {
+
+	private final DataOutputStream out;
+	private long games;
+
+	public GameRecordWriter(OutputStream out) throws IOException {
+		this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+		this.out.writeInt(GameRecord.MAGIC);
+	}
+
+	public GameRecordWriter(Path file) throws IOException {
+		this(Files.newOutputStream(file));
+	}
+
+	/* moves as played with ChessMatch.makeMove from the FEN position, or the starting one if fen is null */
+	public void writeGame(String fen, MoveList moves, int result) throws IOException {
+		if (moves.size() > GameRecord.MAX_PLIES) {
+			throw new IllegalArgumentException("Too many moves for a record: " + moves.size());
+		}
+		out.writeShort(moves.size());
+		out.writeByte(result);
+		out.writeByte(fen != null ? GameRecord.HAS_FEN : 0);
+		if (fen != null) {
+			out.writeShort(fen.length());
+			out.writeBytes(fen); // FEN is ASCII
+		}
+		for (int i = 0; i < moves.size(); i++) {
+			out.writeShort(GameRecord.encode(moves.get(i)));
+		}
+		games++;
+	}
+
+	public long getGames() {
+		return games;
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+	/* usage: GameRecordWriter games.pgn games.cgr - games with illegal moves are left out */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("usage: GameRecordWriter games.pgn games.cgr");
+			return;
+		}
+		long skipped = 0;
+		long start = System.nanoTime();
+		try (Reader in = new InputStreamReader(Files.newInputStream(Paths.get(args[0])), StandardCharsets.ISO_8859_1);
+				PgnReader reader = new PgnReader(in);
+				GameRecordWriter writer = new GameRecordWriter(Paths.get(args[1]))) {
+			MoveList played = new MoveList();
+			MoveList scratch = new MoveList();
+			for (PgnGame game = reader.next(); game != null; game = reader.next()) {
+				String fen = game.getTag("FEN");
+				try {
+					ChessMatch match = fen != null ? new ChessMatch(fen) : new ChessMatch();
+					played.clear();
+					for (String san : game.getMoves()) {
+						int move = San.resolve(match, san, scratch);
+						match.makeMove(move);
+						played.add(move);
+					}
+				} catch (BoardException e) {
+					System.out.println("game " + game.getNumber() + " (line " + game.getLine() + "): " + e.getMessage());
+					skipped++;
+					continue;
+				}
+				String result = game.getResult() != null ? game.getResult() : game.getTag("Result");
+				writer.writeGame(fen, played, GameRecord.result(result));
+			}
+			System.out.println("Games: " + writer.getGames() + ", skipped: " + skipped);
+		}
+		System.out.printf("Time: %.3f s, %d bytes%n", (System.nanoTime() - start) / 1e9, Files.size(Paths.get(args[1])));
+	}
+}
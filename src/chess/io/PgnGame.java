@@ -0,0 +1,44 @@
+package chess.io;
+
+import java.util.List;
+import java.util.Map;
+
+/* One game as read from a PGN file: its tags, its moves in SAN and its result. */
+public class PgnGame {
+
+	private final long number;
+	private final long line;
+	private final Map<String, String> tags;
+	private final List<String> moves;
+	private final String result;
+
+	public PgnGame(long number, long line, Map<String, String> tags, List<String> moves, String result) {
+		this.number = number;
+		this.line = line;
+		this.tags = tags;
+		this.moves = moves;
+		this.result = result;
+	}
+
+	/* position of the game in its file, from 1 */
+	public long getNumber() {
+		return number;
+	}
+	/* line of the file the game starts on */
+	public long getLine() {
+		return line;
+	}
+	public Map<String, String> getTags() {
+		return tags;
+	}
+	public String getTag(String name) {
+		return tags.get(name);
+	}
+	public List<String> getMoves() {
+		return moves;
+	}
+	/* "1-0", "0-1", "1/2-1/2", "*", or null if the game text ended without one */
+	public String getResult() {
+		return result;
+	}
+}
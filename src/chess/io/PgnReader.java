@@ -0,0 +1,180 @@
+package chess.io;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/* Reads the games of a PGN stream one at a time, so a file of any size goes through in
+ * the memory of a single game. Comments, variations, NAGs and move numbers are dropped;
+ * the moves are left in SAN, for San.resolve(). */
+public class PgnReader implements Closeable {
+
+	private final BufferedReader in;
+	private String pending; // first line of the next game, read ahead
+	private long lineNumber;
+	private long games;
+	private boolean inComment;
+	private int variationDepth;
+
+	public PgnReader(Reader in) {
+		this.in = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in, 1 << 16);
+	}
+
+	/* the next game, or null at the end of the stream */
+	public PgnGame next() throws IOException {
+		Map<String, String> tags = new LinkedHashMap<>();
+		List<String> moves = new ArrayList<>();
+		String result = null;
+		boolean inMoves = false;
+		long start = 0;
+		inComment = false;
+		variationDepth = 0;
+
+		String line;
+		while ((line = readLine()) != null) {
+			if (!inComment && variationDepth == 0 && line.startsWith("[")) {
+				if (inMoves) {
+					pending = line; // a new game began without a result
+					lineNumber--;
+					break;
+				}
+				if (start == 0) {
+					start = lineNumber;
+				}
+				parseTag(line, tags);
+				continue;
+			}
+			if (line.startsWith("%")) {
+				continue; // escaped line
+			}
+			if (!inComment && variationDepth == 0 && line.isBlank()) {
+				continue;
+			}
+			if (start == 0) {
+				start = lineNumber;
+			}
+			inMoves = true;
+			result = parseMoves(line, moves);
+			if (result != null) {
+				break;
+			}
+		}
+		if (tags.isEmpty() && moves.isEmpty() && result == null) {
+			return null;
+		}
+		return new PgnGame(++games, start, tags, moves, result);
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	private String readLine() throws IOException {
+		String line = pending;
+		pending = null;
+		if (line == null) {
+			line = in.readLine();
+		}
+		if (line != null) {
+			lineNumber++;
+		}
+		return line;
+	}
+
+	/* [Name "value"] */
+	private static void parseTag(String line, Map<String, String> tags) {
+		int space = line.indexOf(' ');
+		int open = line.indexOf('"');
+		int close = line.lastIndexOf('"');
+		if (space < 2 || open < 0 || close <= open) {
+			return; // not a tag pair, ignored
+		}
+		String value = line.substring(open + 1, close);
+		if (value.indexOf('\\') >= 0) {
+			value = value.replace("\\\"", "\"").replace("\\\\", "\\");
+		}
+		tags.put(line.substring(1, space), value);
+	}
+
+	/* adds the moves of a movetext line; returns the game result if the line has it */
+	private String parseMoves(String line, List<String> moves) {
+		int n = line.length();
+		int i = 0;
+		while (i < n) {
+			char c = line.charAt(i);
+			if (inComment) {
+				if (c == '}') {
+					inComment = false;
+				}
+				i++;
+			} else if (c == '{') {
+				inComment = true;
+				i++;
+			} else if (c == ';') {
+				break; // comment to the end of the line
+			} else if (c == '(') {
+				variationDepth++;
+				i++;
+			} else if (c == ')') {
+				variationDepth = Math.max(variationDepth - 1, 0);
+				i++;
+			} else if (variationDepth > 0 || Character.isWhitespace(c)) {
+				i++;
+			} else {
+				int end = i;
+				while (end < n && !isDelimiter(line.charAt(end))) {
+					end++;
+				}
+				String result = token(line, i, end, moves);
+				if (result != null) {
+					return result;
+				}
+				i = end;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isDelimiter(char c) {
+		return Character.isWhitespace(c) || c == '{' || c == '}' || c == '(' || c == ')' || c == ';';
+	}
+
+	private static String token(String line, int start, int end, List<String> moves) {
+		if (line.startsWith("1-0", start) && end - start == 3) {
+			return "1-0";
+		}
+		if (line.startsWith("0-1", start) && end - start == 3) {
+			return "0-1";
+		}
+		if (line.startsWith("1/2-1/2", start) && end - start == 7) {
+			return "1/2-1/2";
+		}
+		if (line.charAt(start) == '*' && end - start == 1) {
+			return "*";
+		}
+		if (line.charAt(start) == '$') {
+			return null; // numeric annotation glyph
+		}
+		// move number, "12." or "12...", possibly glued to the move
+		int i = start;
+		while (i < end && Character.isDigit(line.charAt(i))) {
+			i++;
+		}
+		if (i < end && line.charAt(i) == '.') {
+			while (i < end && line.charAt(i) == '.') {
+				i++;
+			}
+			start = i;
+		}
+		if (start < end) {
+			moves.add(line.substring(start, end));
+		}
+		return null;
+	}
+}
@@ -0,0 +1,248 @@
+package chess.io;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import boardgame.MoveList;
+import boardgame.exceptions.BoardException;
+import chess.ChessMatch;
+
+/* Replays every game of a PGN stream through ChessMatch, to validate archives. One thread
+ * reads and parses the games into a bounded queue, so a slow pool holds the reader back
+ * instead of filling the memory, and the workers replay them, each on its own match. */
+public class PgnReplay {
+
+	private static final PgnGame END = new PgnGame(0, 0, Collections.emptyMap(), Collections.emptyList(), null);
+	private static final int MAX_ERRORS_KEPT = 1000;
+
+	private final int workers;
+	private final int queueCapacity;
+
+	public PgnReplay(int workers, int queueCapacity) {
+		if (workers < 1 || queueCapacity < 1) {
+			throw new IllegalArgumentException("Workers and queue capacity must be at least 1.");
+		}
+		this.workers = workers;
+		this.queueCapacity = queueCapacity;
+	}
+
+	/* a game that could not be replayed, and where */
+	public static class GameError {
+		private final long game;
+		private final long line;
+		private final int ply;
+		private final String message;
+
+		GameError(long game, long line, int ply, String message) {
+			this.game = game;
+			this.line = line;
+			this.ply = ply;
+			this.message = message;
+		}
+
+		public long getGame() {
+			return game;
+		}
+		public long getLine() {
+			return line;
+		}
+		/* moves replayed before the error */
+		public int getPly() {
+			return ply;
+		}
+		public String getMessage() {
+			return message;
+		}
+
+		@Override
+		public String toString() {
+			return "game " + game + " (line " + line + "), ply " + ply + ": " + message;
+		}
+	}
+
+	public static class Report {
+		private final long games;
+		private final long moves;
+		private final long failed;
+		private final List<GameError> errors;
+		private final long nanos;
+
+		Report(long games, long moves, long failed, List<GameError> errors, long nanos) {
+			this.games = games;
+			this.moves = moves;
+			this.failed = failed;
+			this.errors = errors;
+			this.nanos = nanos;
+		}
+
+		public long getGames() {
+			return games;
+		}
+		public long getMoves() {
+			return moves;
+		}
+		/* games with an error; getErrors() keeps the first of them */
+		public long getFailed() {
+			return failed;
+		}
+		public List<GameError> getErrors() {
+			return errors;
+		}
+		public long getNanos() {
+			return nanos;
+		}
+		public double getGamesPerSecond() {
+			return games / (nanos / 1e9);
+		}
+	}
+
+	public Report replay(Path file) throws IOException {
+		// PGN is 7-bit in practice; ISO-8859-1 takes any byte of a badly encoded tag
+		try (Reader in = new InputStreamReader(Files.newInputStream(file), StandardCharsets.ISO_8859_1)) {
+			return replay(in);
+		}
+	}
+
+	public Report replay(Reader in) throws IOException {
+		long start = System.nanoTime();
+		BlockingQueue<PgnGame> queue = new ArrayBlockingQueue<>(queueCapacity);
+		AtomicLong games = new AtomicLong();
+		AtomicLong moves = new AtomicLong();
+		AtomicLong failed = new AtomicLong();
+		List<GameError> errors = Collections.synchronizedList(new ArrayList<>());
+
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		List<Future<?>> running = new ArrayList<>(workers);
+		for (int i = 0; i < workers; i++) {
+			running.add(pool.submit(() -> {
+				MoveList scratch = new MoveList();
+				for (PgnGame game = queue.take(); game != END; game = queue.take()) {
+					GameError error = replay(game, scratch, moves);
+					games.incrementAndGet();
+					if (error != null && failed.incrementAndGet() <= MAX_ERRORS_KEPT) {
+						errors.add(error);
+					}
+				}
+				return null;
+			}));
+		}
+
+		boolean finished = false;
+		try {
+			PgnReader reader = new PgnReader(in);
+			for (PgnGame game = reader.next(); game != null; game = reader.next()) {
+				put(queue, game, running);
+			}
+			for (int i = 0; i < workers; i++) {
+				put(queue, END, running);
+			}
+			for (Future<?> f : running) {
+				await(f);
+			}
+			finished = true;
+		} finally {
+			if (finished) {
+				pool.shutdown();
+			} else {
+				pool.shutdownNow(); // wakes the workers still waiting for games
+			}
+		}
+
+		List<GameError> sorted = new ArrayList<>(errors);
+		sorted.sort((a, b) -> Long.compare(a.game, b.game));
+		return new Report(games.get(), moves.get(), failed.get(), sorted, System.nanoTime() - start);
+	}
+
+	/* null if every move was legal */
+	private static GameError replay(PgnGame game, MoveList scratch, AtomicLong moves) {
+		int ply = 0;
+		try {
+			String fen = game.getTag("FEN");
+			ChessMatch match = fen != null ? new ChessMatch(fen) : new ChessMatch();
+			for (String san : game.getMoves()) {
+				match.makeMove(San.resolve(match, san, scratch));
+				ply++;
+			}
+			if (game.getResult() == null) {
+				return new GameError(game.getNumber(), game.getLine(), ply, "Missing result");
+			}
+			return null;
+		} catch (BoardException e) {
+			return new GameError(game.getNumber(), game.getLine(), ply, e.getMessage());
+		} catch (RuntimeException e) {
+			return new GameError(game.getNumber(), game.getLine(), ply, e.toString()); // keeps the worker going
+		} finally {
+			moves.addAndGet(ply);
+		}
+	}
+
+	/* waits for room in the queue, checking the workers while it waits: if one failed (even
+	 * with an Error the worker does not catch) nobody may ever make room, so its failure is
+	 * thrown; once all of them are done there is nobody to take the game */
+	private static void put(BlockingQueue<PgnGame> queue, PgnGame game, List<Future<?>> running)
+			throws IOException {
+		try {
+			while (!queue.offer(game, 100, TimeUnit.MILLISECONDS)) {
+				int done = 0;
+				for (Future<?> f : running) {
+					if (f.isDone()) {
+						await(f);
+						done++;
+					}
+				}
+				if (done == running.size()) {
+					return;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while reading games.", e);
+		}
+	}
+
+	private static void await(Future<?> future) throws IOException {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while replaying games.", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Replay worker failed.", e.getCause());
+		}
+	}
+
+	/* usage: PgnReplay file.pgn [workers] [queue capacity] */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("usage: PgnReplay file.pgn [workers] [queue capacity]");
+			return;
+		}
+		int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 1024;
+		Report report = new PgnReplay(workers, capacity).replay(Paths.get(args[0]));
+
+		for (GameError error : report.getErrors()) {
+			System.out.println(error);
+		}
+		System.out.println("Games: " + report.getGames() + ", moves: " + report.getMoves() + ", failed: "
+				+ report.getFailed());
+		System.out.printf("Time: %.3f s%n", report.getNanos() / 1e9);
+		System.out.printf("Games/s: %.0f%n", report.getGamesPerSecond());
+	}
+}
@@ -0,0 +1,135 @@
+package chess.io;
+
+import boardgame.MoveList;
+import chess.ChessMatch;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.PieceType;
+import chess.exceptions.ChessException;
+
+/* Standard algebraic notation ("Nbd7", "exd8=Q+", "O-O") resolved against the legal
+ * moves of a ChessMatch. Coordinate moves such as "e2-e4", "g1f3", "e1g1" or "e7e8Q" are
+ * read as fully disambiguated SAN; as they name no piece, whatever stands on the source
+ * square moves. */
+public final class San {
+
+	private San() {
+	}
+
+	/* the legal move of the current player that the SAN describes; moves is a scratch list */
+	public static int resolve(ChessMatch match, String san, MoveList moves) {
+		int end = san.length();
+		while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+			end--; // check, mate and annotation suffixes
+		}
+		match.legalMoves(moves);
+
+		if (isCastling(san, end)) {
+			int file = end >= 5 ? 2 : 6; // O-O-O : O-O
+			for (int i = 0; i < moves.size(); i++) {
+				int move = moves.get(i);
+				if (ChessMove.is(move, ChessMove.CASTLING) && MoveList.to(move) % 8 == file) {
+					return move;
+				}
+			}
+			throw new ChessException("Illegal move: " + san);
+		}
+
+		int start = 0;
+		PieceType type = end > 0 ? pieceType(san.charAt(0)) : null;
+		boolean pieceGiven = type != null;
+		if (pieceGiven) {
+			start = 1;
+		} else {
+			type = PieceType.PAWN;
+		}
+		PieceType promotion = null;
+		if (type == PieceType.PAWN && end > 2 && pieceType(Character.toUpperCase(san.charAt(end - 1))) != null) {
+			promotion = pieceType(Character.toUpperCase(san.charAt(end - 1)));
+			end--;
+			if (san.charAt(end - 1) == '=') {
+				end--;
+			}
+		}
+		if (end - start < 2 || !isFile(san.charAt(end - 2)) || !isRank(san.charAt(end - 1))) {
+			throw new ChessException("Invalid move: " + san);
+		}
+		int to = square(san.charAt(end - 2), san.charAt(end - 1));
+		end -= 2;
+
+		// what is left is a capture mark and the file and/or rank of the source
+		int fromFile = -1;
+		int fromRank = -1;
+		for (int i = start; i < end; i++) {
+			char c = san.charAt(i);
+			if (isFile(c)) {
+				fromFile = c - 'a';
+			} else if (isRank(c)) {
+				fromRank = '8' - c;
+			} else if (c != 'x' && c != ':' && c != '-') {
+				throw new ChessException("Invalid move: " + san);
+			}
+		}
+
+		int found = 0;
+		int count = 0;
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			int from = MoveList.from(move);
+			if (MoveList.to(move) != to || fromFile >= 0 && from % 8 != fromFile
+					|| fromRank >= 0 && from / 8 != fromRank) {
+				continue;
+			}
+			ChessPiece piece = match.getPiece(from);
+			PieceType moved = ChessMove.promotion(move);
+			boolean coordinate = !pieceGiven && fromFile >= 0 && fromRank >= 0; // "g1f3" names no piece
+			if (!coordinate && piece.getType() != type
+					|| moved != promotion && !(promotion == null && moved == PieceType.QUEEN)) {
+				continue;
+			}
+			found = move;
+			count++;
+		}
+		if (count == 0) {
+			throw new ChessException("Illegal move: " + san);
+		}
+		if (count > 1) {
+			throw new ChessException("Ambiguous move: " + san);
+		}
+		return found;
+	}
+
+	private static boolean isCastling(String san, int end) {
+		return (end == 3 || end == 5) && (san.startsWith("O-O") || san.startsWith("0-0"))
+				&& (end == 3 || san.startsWith("-O", 3) || san.startsWith("-0", 3));
+	}
+
+	private static PieceType pieceType(char c) {
+		switch (c) {
+		case 'N':
+			return PieceType.KNIGHT;
+		case 'B':
+			return PieceType.BISHOP;
+		case 'R':
+			return PieceType.ROOK;
+		case 'Q':
+			return PieceType.QUEEN;
+		case 'K':
+			return PieceType.KING;
+		default:
+			return null;
+		}
+	}
+
+	private static boolean isFile(char c) {
+		return c >= 'a' && c <= 'h';
+	}
+
+	private static boolean isRank(char c) {
+		return c >= '1' && c <= '8';
+	}
+
+	private static int square(char file, char rank) {
+		return ('8' - rank) * 8 + file - 'a';
+	}
+}
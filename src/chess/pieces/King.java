@@ -2,9 +2,11 @@ package chess.pieces;
 
 import boardgame.Board;
 import boardgame.Position;
+import chess.Attacks;
 import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.Color;
+import chess.PieceType;
 
 public class King extends ChessPiece {
 
@@ -20,91 +22,45 @@ public class King extends ChessPiece {
 		return "K";
 	}
 
-	private boolean canMove(Position position) {
-		ChessPiece p = (ChessPiece) getBoard().piece(position);
-		return p == null || p.getColor() != this.getColor();
+	@Override
+	public PieceType getType() {
+		return PieceType.KING;
 	}
 
 	private boolean testRookCastling(Position position) {
 		ChessPiece p = (ChessPiece) getBoard().piece(position);
-		return p != null && p.getMoveCount() == 0; // && p instanceof Rook && p.getColor() == this.getColor();
-		/* this condition should be enough, unless we get the wrong position */
+		return p != null && p.getType() == PieceType.ROOK && p.getColor() == getColor() && p.getMoveCount() == 0;
 	}
 
 	@Override
-	public boolean[][] possibleMoves() {
-		boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-		Position p = new Position(0, 0); // safe initialization
-
-		p.setValues(position.getRow() - 1, position.getColumn()); // above the king
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		p.setValues(position.getRow() + 1, position.getColumn()); // below the king
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		p.setValues(position.getRow(), position.getColumn() - 1); // left of the king
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		p.setValues(position.getRow(), position.getColumn() + 1); // right of the king
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		p.setValues(position.getRow() - 1, position.getColumn() - 1); // NW of the king
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		p.setValues(position.getRow() - 1, position.getColumn() + 1); // NE of the king
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		p.setValues(position.getRow() + 1, position.getColumn() - 1); // SW of the king
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		p.setValues(position.getRow() + 1, position.getColumn() + 1); // SE of the king
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
+	public long possibleTargets() {
+		// one step in any direction, unless an own piece is there
+		long targets = Attacks.king(getSquare()) & ~ownPieces();
 
 		/* CASTLING */
 		if (getMoveCount() == 0 && !match.getCheck()) {
+			long occupied = getBoard().getOccupied();
+			int sq = getSquare();
+			int col = position.getColumn();
+			Color opponent = getColor() == Color.WHITE ? Color.BLACK : Color.WHITE;
 			// castling short
-			Position r1 = new Position(this.position.getRow(), this.position.getColumn() + 3);
-			if (testRookCastling(r1)) {
-				Position p1 = new Position(this.position.getRow(), this.position.getColumn() + 1);
-				Position p2 = new Position(this.position.getRow(), this.position.getColumn() + 2);
-				if (	getBoard().piece(p1) == null && 
-						getBoard().piece(p2) == null	) {
-					// missing condition of squares under attack
-					
-					if (true) {
-						mat[position.getRow()][position.getColumn() + 2] = true;
-					}
+			if (col + 3 < getBoard().getColumns() && testRookCastling(getBoard().position(sq + 3))) {
+				if ((occupied & (1L << sq + 1 | 1L << sq + 2)) == 0
+						// the king can't pass through a square under attack
+						&& !match.isSquareAttacked(sq + 1, opponent) && !match.isSquareAttacked(sq + 2, opponent)) {
+					targets |= 1L << sq + 2;
 				}
 			}
 			// castling long
-			Position r2 = new Position(this.position.getRow(), this.position.getColumn() - 4);
-			if (testRookCastling(r2)) {
-				Position p1 = new Position(this.position.getRow(), this.position.getColumn() - 1);
-				Position p2 = new Position(this.position.getRow(), this.position.getColumn() - 2);
-				Position p3 = new Position(this.position.getRow(), this.position.getColumn() - 3);
-				if (	getBoard().piece(p1) == null && 
-						getBoard().piece(p2) == null &&
-						getBoard().piece(p3) == null	) {
-					// missing condition of squares under attack
-					//if (true) {
-						mat[position.getRow()][position.getColumn() - 2] = true;
-					//}
+			if (col - 4 >= 0 && testRookCastling(getBoard().position(sq - 4))) {
+				if ((occupied & (1L << sq - 1 | 1L << sq - 2 | 1L << sq - 3)) == 0
+						&& !match.isSquareAttacked(sq - 1, opponent) && !match.isSquareAttacked(sq - 2, opponent)) {
+					targets |= 1L << sq - 2;
 				}
 			}
-
 		}
 
-		return mat;
+		return targets;
 	}
 
 }
@@ -1,9 +1,10 @@
 package chess.pieces;
 
 import boardgame.Board;
-import boardgame.Position;
+import chess.Attacks;
 import chess.ChessPiece;
 import chess.Color;
+import chess.PieceType;
 
 public class Knight extends ChessPiece {
 
@@ -15,55 +16,15 @@ public class Knight extends ChessPiece {
 	public String toString() {
 		return "N";
 	}
-	
-	private boolean canMove(Position position) {
-		ChessPiece p = (ChessPiece) getBoard().piece(position);
-		return p == null || p.getColor() != this.getColor();
-	}
 
 	@Override
-	public boolean[][] possibleMoves() {
-		boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-		Position p = new Position(0, 0); // just instantiating a position
-
-		//above the knight
-		p.setValues(position.getRow()-2, position.getColumn()-1); 
-		if(getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		p.setValues(position.getRow()-2, position.getColumn()+1); 
-		if(getBoard().positionExists(p) &&  canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		//left of the knight
-		p.setValues(position.getRow()-1, position.getColumn()-2); 
-		if(getBoard().positionExists(p) &&  canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		p.setValues(position.getRow()+1, position.getColumn()-2);
-		if(getBoard().positionExists(p) &&  canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		//right of the knight
-		p.setValues(position.getRow()-1, position.getColumn()+2); 
-		if(getBoard().positionExists(p) &&  canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		p.setValues(position.getRow()+1, position.getColumn()+2); 
-		if(getBoard().positionExists(p) &&  canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		//below the knight
-		p.setValues(position.getRow()+2, position.getColumn()-1); 
-		if(getBoard().positionExists(p) &&  canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		p.setValues(position.getRow()+2, position.getColumn()+1);
-		if(getBoard().positionExists(p) &&  canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		
+	public PieceType getType() {
+		return PieceType.KNIGHT;
+	}
 
-		return mat;
+	@Override
+	public long possibleTargets() {
+		// any square of the knight table not taken by an own piece
+		return Attacks.knight(getSquare()) & ~ownPieces();
 	}
 }
@@ -1,10 +1,11 @@
 package chess.pieces;
 
 import boardgame.Board;
-import boardgame.Position;
+import chess.Attacks;
 import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.Color;
+import chess.PieceType;
 
 public class Pawn extends ChessPiece {
 
@@ -21,91 +22,43 @@ public class Pawn extends ChessPiece {
 	}
 
 	@Override
-	public boolean[][] possibleMoves() {
-		boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-		Position p = new Position(0, 0); // just instantiating a position
+	public PieceType getType() {
+		return PieceType.PAWN;
+	}
+
+	@Override
+	public long possibleTargets() {
+		int sq = getSquare();
+		long empty = ~getBoard().getOccupied();
+		long targets;
 
-		// JUST WHITES
+		// ahead: whites move up the board (towards row 0), blacks move down
 		if (this.getColor() == Color.WHITE) {
-			p.setValues(position.getRow() - 1, position.getColumn());
-			// ahead
-			if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
+			long single = (1L << sq) >>> 8 & empty;
+			targets = single;
 			// pawn's first move can be 2
 			if (this.getMoveCount() == 0) {
-				p.setValues(position.getRow() - 2, position.getColumn());
-				Position p2 = new Position(position.getRow() - 1, position.getColumn());
-				// ahead
-				if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p) && !getBoard().thereIsAPiece(p2)) {
-					mat[p.getRow()][p.getColumn()] = true;
-				}
-			}
-			// capturing NE
-			p.setValues(position.getRow() - 1, position.getColumn() + 1);
-			if (getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-			// capturing NW
-			p.setValues(position.getRow() - 1, position.getColumn() - 1);
-			if (getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-
-			// en passant
-			if (position.getRow() == 3) {
-				Position left = new Position(position.getRow(), position.getColumn() - 1);
-				if (getBoard().positionExists(left) && isThereOpponentPiece(left)
-						&& getBoard().piece(left) == match.getEnPassantVulnerable()) {
-					mat[left.getRow() - 1][left.getColumn()] = true;
-				}
-				Position right = new Position(position.getRow(), position.getColumn() + 1);
-				if (getBoard().positionExists(right) && isThereOpponentPiece(right)
-						&& getBoard().piece(right) == match.getEnPassantVulnerable()) {
-					mat[right.getRow() - 1][right.getColumn()] = true;
-				}
-			}
-		} else {// BLACKS
-			p.setValues(position.getRow() + 1, position.getColumn());
-			// ahead
-			if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-				mat[p.getRow()][p.getColumn()] = true;
+				targets |= single >>> 8 & empty;
 			}
-			// pawn's first move can be 2
+		} else {
+			long single = (1L << sq) << 8 & empty;
+			targets = single;
 			if (this.getMoveCount() == 0) {
-				p.setValues(position.getRow() + 2, position.getColumn());
-				Position p2 = new Position(position.getRow() + 1, position.getColumn());
-				// ahead
-				if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p) && !getBoard().thereIsAPiece(p2)) {
-					mat[p.getRow()][p.getColumn()] = true;
-				}
-			}
-			// capturing SE
-			p.setValues(position.getRow() + 1, position.getColumn() + 1);
-			if (getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-			// capturing SW
-			p.setValues(position.getRow() + 1, position.getColumn() - 1);
-			if (getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-				mat[p.getRow()][p.getColumn()] = true;
+				targets |= single << 8 & empty;
 			}
+		}
 
-			// en passant
-			if (position.getRow() == 4) {
-				Position left = new Position(position.getRow(), position.getColumn() - 1);
-				if (getBoard().positionExists(left) && isThereOpponentPiece(left)
-						&& getBoard().piece(left) == match.getEnPassantVulnerable()) {
-					mat[left.getRow() + 1][left.getColumn()] = true;
-				}
-				Position right = new Position(position.getRow(), position.getColumn() + 1);
-				if (getBoard().positionExists(right) && isThereOpponentPiece(right)
-						&& getBoard().piece(right) == match.getEnPassantVulnerable()) {
-					mat[right.getRow() + 1][right.getColumn()] = true;
-				}
-			}
-		} // end else
+		// capturing
+		long attacks = Attacks.pawn(getColor(), sq);
+		targets |= attacks & opponentPieces();
+
+		// en passant: the square the vulnerable pawn jumped over
+		ChessPiece vulnerable = match.getEnPassantVulnerable();
+		if (vulnerable != null && vulnerable.isOnBoard() && vulnerable.getColor() != getColor()) {
+			int passed = vulnerable.getSquare() + (getColor() == Color.WHITE ? -8 : 8);
+			targets |= attacks & 1L << passed;
+		}
 
-		return mat;
+		return targets;
 	}
 }